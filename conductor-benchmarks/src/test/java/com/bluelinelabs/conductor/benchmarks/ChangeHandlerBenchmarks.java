@@ -0,0 +1,260 @@
+package com.bluelinelabs.conductor.benchmarks;
+
+import android.support.annotation.NonNull;
+
+import com.bluelinelabs.conductor.ControllerChangeHandler;
+import com.bluelinelabs.conductor.Router;
+import com.bluelinelabs.conductor.RouterTransaction;
+import com.bluelinelabs.conductor.benchmarks.util.Benchmark;
+import com.bluelinelabs.conductor.benchmarks.util.BenchmarkController;
+import com.bluelinelabs.conductor.benchmarks.util.BenchmarkHost;
+import com.bluelinelabs.conductor.benchmarks.util.ChangeProbe;
+import com.bluelinelabs.conductor.benchmarks.util.FrameDriver;
+import com.bluelinelabs.conductor.changehandler.AutoTransitionChangeHandler;
+import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
+import com.bluelinelabs.conductor.changehandler.HorizontalChangeHandler;
+import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
+import com.bluelinelabs.conductor.changehandler.TransitionChangeHandlerCompat;
+import com.bluelinelabs.conductor.changehandler.VerticalChangeHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs each bundled change handler through push, pop, aborted push and immediately completed push cycles on a
+ * paused main looper, reporting the frames each cycle takes until every change has completed, how many of those
+ * were spent waiting for the new view to be measured before an animation could start, and the bytes allocated per
+ * cycle. Allocations include the cost of simulating the frames themselves, which the "idle frame" row reports.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class ChangeHandlerBenchmarks {
+
+    private static final int MAX_FRAMES_PER_CYCLE = 1000;
+
+    private interface HandlerFactory {
+        ControllerChangeHandler create();
+    }
+
+    private enum Cycle {
+        /** Push a new Controller and run until the change has completed. */
+        PUSH,
+        /** Pop the top Controller and run until the change has completed. */
+        POP,
+        /** Push a new Controller and pop it within the same frame, which aborts the push. */
+        ABORT,
+        /** Push two Controllers within the same frame, which completes the first push immediately. */
+        COMPLETE_IMMEDIATELY
+    }
+
+    private Router router;
+    private FrameDriver frameDriver;
+    private ChangeProbe changeProbe;
+
+    @Before
+    public void setup() {
+        BenchmarkHost host = new BenchmarkHost();
+        frameDriver = new FrameDriver(host.getContainer());
+        frameDriver.pause();
+
+        changeProbe = new ChangeProbe();
+        router = host.attachRouter(null);
+        router.addChangeListener(changeProbe);
+        router.setRoot(RouterTransaction.with(new BenchmarkController()));
+        runUntilIdle();
+    }
+
+    @After
+    public void teardown() {
+        frameDriver.unPause();
+    }
+
+    @Test
+    public void idleFrame() {
+        int iterations = Benchmark.iterations();
+        long allocatedBefore = Benchmark.allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            frameDriver.frame();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = Benchmark.allocatedBytes();
+
+        report("idle frame", "-", iterations, elapsed, allocatedBefore >= 0 ? allocatedAfter - allocatedBefore : -1, iterations, 0);
+    }
+
+    @Test
+    public void horizontalChangeHandler() {
+        runCycles(new HandlerFactory() {
+            @Override
+            public ControllerChangeHandler create() {
+                return new HorizontalChangeHandler();
+            }
+        });
+    }
+
+    @Test
+    public void verticalChangeHandler() {
+        runCycles(new HandlerFactory() {
+            @Override
+            public ControllerChangeHandler create() {
+                return new VerticalChangeHandler();
+            }
+        });
+    }
+
+    @Test
+    public void fadeChangeHandler() {
+        runCycles(new HandlerFactory() {
+            @Override
+            public ControllerChangeHandler create() {
+                return new FadeChangeHandler();
+            }
+        });
+    }
+
+    @Test
+    public void simpleSwapChangeHandler() {
+        runCycles(new HandlerFactory() {
+            @Override
+            public ControllerChangeHandler create() {
+                return new SimpleSwapChangeHandler();
+            }
+        });
+    }
+
+    @Test
+    public void autoTransitionChangeHandler() {
+        runCycles(new HandlerFactory() {
+            @Override
+            public ControllerChangeHandler create() {
+                return new AutoTransitionChangeHandler();
+            }
+        });
+    }
+
+    @Test
+    public void transitionChangeHandlerCompat() {
+        runCycles(new HandlerFactory() {
+            @Override
+            public ControllerChangeHandler create() {
+                return new TransitionChangeHandlerCompat(new AutoTransitionChangeHandler(), new FadeChangeHandler());
+            }
+        });
+    }
+
+    private void runCycles(@NonNull HandlerFactory handlerFactory) {
+        String handlerName = handlerFactory.create().getClass().getSimpleName();
+        for (Cycle cycle : Cycle.values()) {
+            int iterations = Benchmark.iterations();
+            for (int i = 0; i < Math.max(1, iterations / 2); i++) {
+                runCycle(cycle, handlerFactory, null);
+            }
+
+            long[] totals = new long[4];
+            for (int i = 0; i < iterations; i++) {
+                runCycle(cycle, handlerFactory, totals);
+            }
+
+            report(handlerName, cycle.name(), iterations, totals[0], totals[1], totals[2], totals[3]);
+        }
+    }
+
+    /**
+     * Runs a single cycle, adding the nanoseconds, allocated bytes, frames and frames spent waiting for the view to
+     * be ready to animate to {@code totals} if it isn't null.
+     */
+    private void runCycle(@NonNull Cycle cycle, @NonNull HandlerFactory handlerFactory, long[] totals) {
+        if (cycle == Cycle.POP) {
+            router.pushController(RouterTransaction.with(new BenchmarkController())
+                    .pushChangeHandler(new SimpleSwapChangeHandler())
+                    .popChangeHandler(handlerFactory.create()));
+            runUntilIdle();
+        }
+
+        changeProbe.reset();
+        int startFrame = frameDriver.getFrameCount();
+        int waitingFrames = 0;
+        long allocatedBefore = Benchmark.allocatedBytes();
+        long start = System.nanoTime();
+
+        int expectedChanges;
+        switch (cycle) {
+            case PUSH:
+                router.pushController(RouterTransaction.with(new BenchmarkController()).pushChangeHandler(handlerFactory.create()));
+                expectedChanges = 1;
+                break;
+            case POP:
+                router.popCurrentController();
+                expectedChanges = 1;
+                break;
+            case ABORT:
+                router.pushController(RouterTransaction.with(new BenchmarkController())
+                        .pushChangeHandler(handlerFactory.create())
+                        .popChangeHandler(handlerFactory.create()));
+                router.popCurrentController();
+                expectedChanges = 2;
+                break;
+            case COMPLETE_IMMEDIATELY:
+                router.pushController(RouterTransaction.with(new BenchmarkController()).pushChangeHandler(handlerFactory.create()));
+                router.pushController(RouterTransaction.with(new BenchmarkController()).pushChangeHandler(handlerFactory.create()));
+                expectedChanges = 2;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown cycle " + cycle);
+        }
+
+        while (changeProbe.getCompletedChanges() < expectedChanges || !changeProbe.isIdle()) {
+            assertTrue(cycle + " did not complete within " + MAX_FRAMES_PER_CYCLE + " frames", frameDriver.getFrameCount() - startFrame < MAX_FRAMES_PER_CYCLE);
+
+            if (changeProbe.isWaitingForAnimationReady()) {
+                waitingFrames++;
+            }
+            frameDriver.frame();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = Benchmark.allocatedBytes();
+
+        if (totals != null) {
+            totals[0] += elapsed;
+            totals[1] = allocatedBefore >= 0 && totals[1] >= 0 ? totals[1] + allocatedAfter - allocatedBefore : -1;
+            totals[2] += frameDriver.getFrameCount() - startFrame;
+            totals[3] += waitingFrames;
+        }
+
+        // Return to the root with changes that complete synchronously
+        while (router.getBackstackSize() > 1) {
+            router.popCurrentController();
+        }
+        runUntilIdle();
+        assertEquals(1, router.getBackstackSize());
+    }
+
+    /**
+     * Runs at least one frame, so that changes the Router deferred until its container is attached get started.
+     */
+    private void runUntilIdle() {
+        int startFrame = frameDriver.getFrameCount();
+        do {
+            assertTrue("Router did not become idle within " + MAX_FRAMES_PER_CYCLE + " frames", frameDriver.getFrameCount() - startFrame < MAX_FRAMES_PER_CYCLE);
+            frameDriver.frame();
+        } while (!changeProbe.isIdle());
+    }
+
+    private static void report(String handlerName, String cycle, int iterations, long totalNanos, long totalBytes, long totalFrames, long totalWaitingFrames) {
+        System.out.println(String.format(Locale.US, "%-36s %-22s %10d ns/op %10s B/op %8.2f frames/op %8.2f waiting frames/op",
+                handlerName, cycle, totalNanos / iterations, totalBytes >= 0 ? String.valueOf(totalBytes / iterations) : "n/a",
+                (double)totalFrames / iterations, (double)totalWaitingFrames / iterations));
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.bluelinelabs.conductor.benchmarks;
+
+import android.os.Bundle;
+
+import com.bluelinelabs.conductor.ActivityHostedRouter;
+import com.bluelinelabs.conductor.Controller;
+import com.bluelinelabs.conductor.Router;
+import com.bluelinelabs.conductor.RouterTransaction;
+import com.bluelinelabs.conductor.benchmarks.util.Benchmark;
+import com.bluelinelabs.conductor.benchmarks.util.BenchmarkController;
+import com.bluelinelabs.conductor.benchmarks.util.BenchmarkHost;
+import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RouterBenchmarks {
+
+    private static final int DEEP_BACKSTACK_SIZE = 200;
+    private static final int WIDE_BACKSTACK_SIZE = 50;
+    private static final int NESTING_DEPTH = 5;
+    private static final int CONTROLLERS_PER_CHILD_ROUTER = 10;
+    private static final int CHILD_ROUTER_COUNT = 20;
+    private static final int SAVED_BACKSTACK_SIZE = 50;
+
+    private Router router;
+
+    @Before
+    public void setup() {
+        router = new BenchmarkHost().attachRouter(null);
+        router.setRoot(RouterTransaction.with(new BenchmarkController()));
+    }
+
+    @Test
+    public void pushPop() {
+        Benchmark.run("Router.pushController + popCurrentController", new Benchmark.Operation() {
+            @Override
+            public void run() {
+                router.pushController(RouterTransaction.with(new BenchmarkController()));
+                router.popCurrentController();
+            }
+        });
+
+        assertEquals(1, router.getBackstackSize());
+    }
+
+    @Test
+    public void setBackstackDeep() {
+        for (int i = 1; i < DEEP_BACKSTACK_SIZE; i++) {
+            router.pushController(RouterTransaction.with(new BenchmarkController()));
+        }
+
+        Benchmark.run("Router.setBackstack, " + DEEP_BACKSTACK_SIZE + " deep, reordered below the top", new Benchmark.Operation() {
+            @Override
+            public void run() {
+                router.setBackstack(moveRootBelowTop(router.getBackstack()), null);
+            }
+        });
+
+        assertEquals(DEEP_BACKSTACK_SIZE, router.getBackstackSize());
+    }
+
+    @Test
+    public void setBackstackWide() {
+        // Controllers pushed without removing the views below them all stay visible
+        for (int i = 1; i < WIDE_BACKSTACK_SIZE; i++) {
+            router.pushController(RouterTransaction.with(new BenchmarkController()).pushChangeHandler(new SimpleSwapChangeHandler(false)));
+        }
+
+        Benchmark.run("Router.setBackstack, " + WIDE_BACKSTACK_SIZE + " visible, reordered below the top", new Benchmark.Operation() {
+            @Override
+            public void run() {
+                router.setBackstack(moveRootBelowTop(router.getBackstack()), null);
+            }
+        });
+
+        assertEquals(WIDE_BACKSTACK_SIZE, router.getBackstackSize());
+    }
+
+    @Test
+    public void getControllerWithInstanceIdNested() {
+        // Every level hosts a child router whose controllers all stay visible, the top one of which hosts the next level
+        BenchmarkController parent = (BenchmarkController)router.getBackstack().get(0).controller();
+        for (int depth = 0; depth < NESTING_DEPTH; depth++) {
+            Router childRouter = parent.getChildRouter(parent.getChildContainer(0));
+            for (int i = 0; i < CONTROLLERS_PER_CHILD_ROUTER; i++) {
+                parent = new BenchmarkController();
+                childRouter.pushController(RouterTransaction.with(parent).pushChangeHandler(new SimpleSwapChangeHandler(false)));
+            }
+        }
+
+        final String deepestInstanceId = parent.getInstanceId();
+        Benchmark.run("Router.getControllerWithInstanceId, " + NESTING_DEPTH + " levels of child routers", new Benchmark.Operation() {
+            @Override
+            public void run() {
+                router.getControllerWithInstanceId(deepestInstanceId);
+            }
+        });
+
+        assertSame(parent, router.getControllerWithInstanceId(deepestInstanceId));
+    }
+
+    @Test
+    public void handleBackWithManyChildRouters() {
+        BenchmarkController parent = new BenchmarkController(CHILD_ROUTER_COUNT);
+        router.pushController(RouterTransaction.with(parent));
+
+        Router lastChildRouter = null;
+        for (int i = 0; i < CHILD_ROUTER_COUNT; i++) {
+            lastChildRouter = parent.getChildRouter(parent.getChildContainer(i));
+            lastChildRouter.setRoot(RouterTransaction.with(new BenchmarkController()));
+        }
+
+        final Router childRouter = lastChildRouter;
+        Benchmark.run("Router.handleBack, " + CHILD_ROUTER_COUNT + " child routers", new Benchmark.Operation() {
+            @Override
+            public void run() {
+                childRouter.pushController(RouterTransaction.with(new BenchmarkController()));
+                router.handleBack();
+            }
+        });
+
+        assertEquals(1, childRouter.getBackstackSize());
+        assertEquals(2, router.getBackstackSize());
+    }
+
+    @Test
+    public void saveRestoreInstanceState() {
+        for (int i = 1; i < SAVED_BACKSTACK_SIZE; i++) {
+            router.pushController(RouterTransaction.with(new BenchmarkController()));
+        }
+        final Controller top = router.getBackstack().get(SAVED_BACKSTACK_SIZE - 1).controller();
+
+        Benchmark.run("Router.saveInstanceState, " + SAVED_BACKSTACK_SIZE + " deep", new Benchmark.Operation() {
+            @Override
+            public void run() {
+                router.saveInstanceState(new Bundle());
+            }
+        });
+
+        final Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        Benchmark.run("Router.restoreInstanceState, " + SAVED_BACKSTACK_SIZE + " deep", new Benchmark.Operation() {
+            @Override
+            public void run() {
+                Router restoredRouter = new ActivityHostedRouter();
+                restoredRouter.restoreInstanceState(savedState);
+            }
+        });
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(savedState);
+        assertEquals(SAVED_BACKSTACK_SIZE, restoredRouter.getBackstackSize());
+        assertFalse(restoredRouter.getControllerWithInstanceId(top.getInstanceId()) == null);
+        assertTrue(restoredRouter.hasRootController());
+    }
+
+    private static List<RouterTransaction> moveRootBelowTop(List<RouterTransaction> backstack) {
+        RouterTransaction root = backstack.remove(0);
+        backstack.add(backstack.size() - 1, root);
+        return backstack;
+    }
+
+}
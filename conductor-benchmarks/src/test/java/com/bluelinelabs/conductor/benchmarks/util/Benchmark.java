@@ -0,0 +1,90 @@
+package com.bluelinelabs.conductor.benchmarks.util;
+
+import android.support.annotation.NonNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * A minimal benchmark harness for code that has to run inside Robolectric, where JMH's forked and instrumented
+ * runners can't be used. Each benchmark is warmed up before being measured for a number of iterations set through
+ * the {@code conductor.benchmark.iterations} system property, and reports its throughput and the bytes allocated
+ * on the measuring thread per iteration.
+ */
+public final class Benchmark {
+
+    public interface Operation {
+        void run();
+    }
+
+    public static final class Result {
+        public final String name;
+        public final int iterations;
+        public final long nanosPerOp;
+        /** Bytes allocated per iteration, or -1 if the JVM can't measure allocations. */
+        public final long bytesPerOp;
+
+        Result(String name, int iterations, long nanosPerOp, long bytesPerOp) {
+            this.name = name;
+            this.iterations = iterations;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        public double opsPerSecond() {
+            return nanosPerOp > 0 ? 1e9 / nanosPerOp : Double.POSITIVE_INFINITY;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-60s %12.1f ops/s %12d ns/op %12s B/op", name, opsPerSecond(), nanosPerOp,
+                    bytesPerOp >= 0 ? String.valueOf(bytesPerOp) : "n/a");
+        }
+    }
+
+    private static final int DEFAULT_ITERATIONS = 100;
+
+    private Benchmark() { }
+
+    public static int iterations() {
+        return Math.max(1, Integer.getInteger("conductor.benchmark.iterations", DEFAULT_ITERATIONS));
+    }
+
+    @NonNull
+    public static Result run(@NonNull String name, @NonNull Operation operation) {
+        int iterations = iterations();
+
+        for (int i = 0; i < Math.max(1, iterations / 2); i++) {
+            operation.run();
+        }
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+
+        long bytesPerOp = allocatedBefore >= 0 && allocatedAfter >= 0 ? (allocatedAfter - allocatedBefore) / iterations : -1;
+        Result result = new Result(name, iterations, elapsed / iterations, bytesPerOp);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread, or -1 if that isn't supported.
+     */
+    public static long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean)threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+}
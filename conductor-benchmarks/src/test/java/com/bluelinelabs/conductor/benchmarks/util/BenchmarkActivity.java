@@ -0,0 +1,5 @@
+package com.bluelinelabs.conductor.benchmarks.util;
+
+import android.app.Activity;
+
+public class BenchmarkActivity extends Activity { }
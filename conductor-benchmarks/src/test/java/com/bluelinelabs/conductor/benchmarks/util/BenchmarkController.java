@@ -0,0 +1,70 @@
+package com.bluelinelabs.conductor.benchmarks.util;
+
+import android.os.Bundle;
+import android.support.annotation.IdRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.bluelinelabs.conductor.Controller;
+
+/**
+ * A Controller with a cheap view that hosts a configurable number of child containers.
+ */
+public class BenchmarkController extends Controller {
+
+    @IdRes public static final int VIEW_ID = 2342;
+    @IdRes private static final int FIRST_CHILD_CONTAINER_ID = 3000;
+
+    private static final String KEY_CHILD_CONTAINER_COUNT = "BenchmarkController.childContainerCount";
+
+    public BenchmarkController() {
+        this(1);
+    }
+
+    public BenchmarkController(int childContainerCount) {
+        this(createArgs(childContainerCount));
+    }
+
+    public BenchmarkController(@Nullable Bundle args) {
+        super(args);
+    }
+
+    @IdRes
+    public static int childContainerId(int index) {
+        return FIRST_CHILD_CONTAINER_ID + index;
+    }
+
+    @NonNull
+    public ViewGroup getChildContainer(int index) {
+        //noinspection ConstantConditions
+        return (ViewGroup)getView().findViewById(childContainerId(index));
+    }
+
+    @NonNull
+    @Override
+    protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+        FrameLayout view = new AttachFakingFrameLayout(inflater.getContext());
+        view.setId(VIEW_ID);
+
+        int childContainerCount = getArgs().getInt(KEY_CHILD_CONTAINER_COUNT);
+        for (int i = 0; i < childContainerCount; i++) {
+            FrameLayout childContainer = new AttachFakingFrameLayout(inflater.getContext());
+            childContainer.setId(childContainerId(i));
+            view.addView(childContainer);
+        }
+
+        return view;
+    }
+
+    @NonNull
+    private static Bundle createArgs(int childContainerCount) {
+        Bundle args = new Bundle();
+        args.putInt(KEY_CHILD_CONTAINER_COUNT, childContainerCount);
+        return args;
+    }
+
+}
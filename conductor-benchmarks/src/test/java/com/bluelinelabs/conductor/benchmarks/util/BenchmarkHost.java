@@ -0,0 +1,43 @@
+package com.bluelinelabs.conductor.benchmarks.util;
+
+import android.os.Bundle;
+import android.support.annotation.IdRes;
+import android.support.annotation.Nullable;
+
+import com.bluelinelabs.conductor.Conductor;
+import com.bluelinelabs.conductor.Router;
+
+import org.robolectric.Robolectric;
+import org.robolectric.util.ActivityController;
+
+/**
+ * A resumed Activity with an attached container that a {@link Router} can be attached to.
+ */
+public class BenchmarkHost {
+
+    private final ActivityController<BenchmarkActivity> activityController;
+    private final AttachFakingFrameLayout container;
+
+    public BenchmarkHost() {
+        activityController = Robolectric.buildActivity(BenchmarkActivity.class);
+
+        @IdRes int containerId = 4;
+        container = new AttachFakingFrameLayout(activityController.get());
+        container.setId(containerId);
+    }
+
+    public Router attachRouter(@Nullable Bundle savedInstanceState) {
+        activityController.create(savedInstanceState).start().resume();
+        container.setAttached(true);
+        return Conductor.attachRouter(activityController.get(), container, savedInstanceState);
+    }
+
+    public BenchmarkActivity getActivity() {
+        return activityController.get();
+    }
+
+    public AttachFakingFrameLayout getContainer() {
+        return container;
+    }
+
+}
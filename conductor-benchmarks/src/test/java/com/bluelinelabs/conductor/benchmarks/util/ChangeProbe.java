@@ -0,0 +1,71 @@
+package com.bluelinelabs.conductor.benchmarks.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.Controller;
+import com.bluelinelabs.conductor.ControllerChangeHandler;
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
+import com.bluelinelabs.conductor.changehandler.AnimatorChangeHandler;
+import com.bluelinelabs.conductor.changehandler.TransitionChangeHandlerCompat;
+
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps track of the changes a {@link com.bluelinelabs.conductor.Router} has started but not yet completed.
+ */
+public class ChangeProbe implements ControllerChangeListener {
+
+    private final List<ControllerChangeHandler> inProgressHandlers = new ArrayList<>();
+    private int completedChanges;
+
+    public void reset() {
+        inProgressHandlers.clear();
+        completedChanges = 0;
+    }
+
+    public int getCompletedChanges() {
+        return completedChanges;
+    }
+
+    public boolean isIdle() {
+        return inProgressHandlers.isEmpty();
+    }
+
+    /**
+     * Returns true if an in-progress {@link AnimatorChangeHandler} is still waiting for its view to be measured
+     * before starting its animation.
+     */
+    public boolean isWaitingForAnimationReady() {
+        for (ControllerChangeHandler handler : inProgressHandlers) {
+            if (handler instanceof TransitionChangeHandlerCompat) {
+                handler = ReflectionHelpers.getField(handler, "changeHandler");
+            }
+
+            if (handler instanceof AnimatorChangeHandler) {
+                Object readyListener = ReflectionHelpers.getField(handler, "onAnimationReadyOrAbortedListener");
+                Object animator = ReflectionHelpers.getField(handler, "animator");
+                if (readyListener != null && animator == null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onChangeStarted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) {
+        inProgressHandlers.add(handler);
+    }
+
+    @Override
+    public void onChangeCompleted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) {
+        inProgressHandlers.remove(handler);
+        completedChanges++;
+    }
+
+}
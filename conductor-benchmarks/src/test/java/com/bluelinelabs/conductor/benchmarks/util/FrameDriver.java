@@ -0,0 +1,66 @@
+package com.bluelinelabs.conductor.benchmarks.util;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Steps a paused Robolectric main looper one frame at a time. Robolectric never lays out or draws views on its own,
+ * so each frame runs everything scheduled within the next 16ms (including Choreographer animation callbacks), then
+ * lays out the container and dispatches a pre-draw pass to it and its children the way a real traversal would.
+ */
+public class FrameDriver {
+
+    public static final long FRAME_MILLIS = 16;
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private final ViewGroup container;
+    private int frameCount;
+
+    public FrameDriver(@NonNull ViewGroup container) {
+        this.container = container;
+    }
+
+    public void pause() {
+        ShadowLooper.pauseMainLooper();
+    }
+
+    public void unPause() {
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    public void frame() {
+        ShadowLooper.idleMainLooper(FRAME_MILLIS);
+
+        container.measure(MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY), MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.EXACTLY));
+        container.layout(0, 0, WIDTH, HEIGHT);
+
+        // Views that aren't really attached to a window each have their own observer, so every one of them is drawn
+        ViewTreeObserver containerObserver = container.getViewTreeObserver();
+        View[] children = new View[container.getChildCount()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = container.getChildAt(i);
+        }
+
+        containerObserver.dispatchOnPreDraw();
+        for (View child : children) {
+            ViewTreeObserver childObserver = child.getViewTreeObserver();
+            if (childObserver != containerObserver && childObserver.isAlive()) {
+                childObserver.dispatchOnPreDraw();
+            }
+        }
+
+        frameCount++;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+}
@@ -0,0 +1,195 @@
+package com.bluelinelabs.conductor.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a class implementing both {@code ControllerFactory} and {@code ChangeHandlerFactory} for every
+ * non-abstract {@code Controller} and {@code ControllerChangeHandler} subclass in the compiled sources, allowing
+ * Conductor to recreate them without reflection. The generated class is named
+ * {@value #DEFAULT_FACTORY_NAME} unless the {@value #OPTION_FACTORY_NAME} option is passed, which is required
+ * when more than one module of the same app runs this processor. Classes generated by other annotation processors are
+ * not included and will be created through reflection.
+ */
+public final class ConductorFactoryProcessor extends AbstractProcessor {
+
+    static final String OPTION_FACTORY_NAME = "conductor.factoryName";
+    static final String DEFAULT_FACTORY_NAME = "com.bluelinelabs.conductor.generated.ConductorFactories";
+
+    private static final String CONTROLLER = "com.bluelinelabs.conductor.Controller";
+    private static final String CHANGE_HANDLER = "com.bluelinelabs.conductor.ControllerChangeHandler";
+    private static final String BUNDLE = "android.os.Bundle";
+
+    private Elements elements;
+    private Types types;
+    private Filer filer;
+    private Messager messager;
+
+    // Class name -> whether it should be created with its Bundle constructor
+    private final Map<String, Boolean> controllers = new LinkedHashMap<>();
+    private final List<String> changeHandlers = new ArrayList<>();
+    private boolean generated;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        filer = processingEnv.getFiler();
+        messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // Controllers aren't annotated, so every compiled type has to be inspected
+        return Collections.singleton("*");
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(OPTION_FACTORY_NAME);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement controllerElement = elements.getTypeElement(CONTROLLER);
+        TypeElement changeHandlerElement = elements.getTypeElement(CHANGE_HANDLER);
+        if (controllerElement == null || changeHandlerElement == null || generated) {
+            return false;
+        }
+
+        TypeMirror controllerType = types.erasure(controllerElement.asType());
+        TypeMirror changeHandlerType = types.erasure(changeHandlerElement.asType());
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            scan(type, controllerType, changeHandlerType);
+        }
+
+        // Files created in the last round aren't processed any further and make javac warn, so the factory is written as
+        // soon as the sources have been scanned. Types generated by other processors in later rounds are left to reflection.
+        if (!roundEnv.processingOver()) {
+            generated = true;
+            writeFactory();
+        }
+
+        // Never claim annotations so other processors still see them
+        return false;
+    }
+
+    private void scan(TypeElement type, TypeMirror controllerType, TypeMirror changeHandlerType) {
+        if (type.getKind() == ElementKind.CLASS && isInstantiable(type)) {
+            TypeMirror erasure = types.erasure(type.asType());
+            String className = type.getQualifiedName().toString();
+
+            if (types.isSubtype(erasure, controllerType) && !types.isSameType(erasure, controllerType)) {
+                ExecutableElement bundleConstructor = findConstructor(type, true);
+                if (bundleConstructor != null) {
+                    controllers.put(className, true);
+                } else if (findConstructor(type, false) != null) {
+                    controllers.put(className, false);
+                } else {
+                    messager.printMessage(Diagnostic.Kind.WARNING, className + " has neither a public default constructor nor a"
+                            + " public constructor that takes a Bundle and will be created through reflection.", type);
+                }
+            } else if (types.isSubtype(erasure, changeHandlerType) && !types.isSameType(erasure, changeHandlerType)) {
+                if (findConstructor(type, false) != null) {
+                    changeHandlers.add(className);
+                }
+            }
+        }
+
+        for (TypeElement nestedType : ElementFilter.typesIn(type.getEnclosedElements())) {
+            scan(nestedType, controllerType, changeHandlerType);
+        }
+    }
+
+    private static boolean isInstantiable(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+
+        // The generated factory has to be able to reference the class and every class enclosing it
+        Element element = type;
+        while (element instanceof TypeElement) {
+            Set<Modifier> modifiers = element.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC)) {
+                return false;
+            }
+            if (element.getEnclosingElement() instanceof TypeElement && !modifiers.contains(Modifier.STATIC)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private static ExecutableElement findConstructor(TypeElement type, boolean withBundle) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+
+            List<? extends VariableElement> parameters = constructor.getParameters();
+            if (!withBundle && parameters.isEmpty()) {
+                return constructor;
+            } else if (withBundle && parameters.size() == 1 && BUNDLE.equals(parameters.get(0).asType().toString())) {
+                return constructor;
+            }
+        }
+        return null;
+    }
+
+    private void writeFactory() {
+        String factoryName = processingEnv.getOptions().get(OPTION_FACTORY_NAME);
+        if (factoryName == null || factoryName.isEmpty()) {
+            factoryName = DEFAULT_FACTORY_NAME;
+        }
+
+        int lastDot = factoryName.lastIndexOf('.');
+        String packageName = lastDot > 0 ? factoryName.substring(0, lastDot) : "";
+        String simpleName = factoryName.substring(lastDot + 1);
+
+        try {
+            JavaFileObject file = filer.createSourceFile(factoryName);
+            Writer writer = file.openWriter();
+            try {
+                writer.write(FactoryWriter.write(packageName, simpleName, controllers, changeHandlers));
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Unable to write " + factoryName + ": " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.bluelinelabs.conductor.compiler;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the source of the generated factory class.
+ */
+final class FactoryWriter {
+
+    private FactoryWriter() { }
+
+    /**
+     * @param controllers    Fully-qualified Controller class names mapped to whether they take a Bundle argument
+     * @param changeHandlers Fully-qualified ControllerChangeHandler class names
+     */
+    static String write(String packageName, String simpleName, Map<String, Boolean> controllers, List<String> changeHandlers) {
+        StringBuilder source = new StringBuilder();
+
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+
+        source.append("import android.os.Bundle;\n\n")
+                .append("import com.bluelinelabs.conductor.ChangeHandlerFactory;\n")
+                .append("import com.bluelinelabs.conductor.Controller;\n")
+                .append("import com.bluelinelabs.conductor.ControllerChangeHandler;\n")
+                .append("import com.bluelinelabs.conductor.ControllerFactory;\n\n")
+                .append("import java.util.HashMap;\n")
+                .append("import java.util.Map;\n\n")
+                .append("/**\n")
+                .append(" * Generated by conductor-compiler. Register with Conductor.addControllerFactory and\n")
+                .append(" * Conductor.addChangeHandlerFactory to recreate Controllers and ControllerChangeHandlers without reflection.\n")
+                .append(" */\n")
+                .append("public final class ").append(simpleName).append(" implements ControllerFactory, ChangeHandlerFactory {\n\n")
+                .append("    private final Map<String, Integer> controllers = new HashMap<>(").append(capacity(controllers.size())).append(");\n")
+                .append("    private final Map<String, Integer> changeHandlers = new HashMap<>(").append(capacity(changeHandlers.size())).append(");\n\n");
+
+        // Runtime names are looked up through class literals so they remain correct after obfuscation
+        source.append("    public ").append(simpleName).append("() {\n");
+        int index = 0;
+        for (String controller : controllers.keySet()) {
+            source.append("        controllers.put(").append(controller).append(".class.getName(), ").append(index++).append(");\n");
+        }
+        index = 0;
+        for (String changeHandler : changeHandlers) {
+            source.append("        changeHandlers.put(").append(changeHandler).append(".class.getName(), ").append(index++).append(");\n");
+        }
+        source.append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public Controller createController(String className, Bundle args) {\n")
+                .append("        Integer index = controllers.get(className);\n")
+                .append("        if (index == null) {\n")
+                .append("            return null;\n")
+                .append("        }\n\n")
+                .append("        switch (index) {\n");
+        index = 0;
+        for (Map.Entry<String, Boolean> controller : controllers.entrySet()) {
+            String className = controller.getKey();
+            source.append("            case ").append(index++).append(":\n");
+            if (controller.getValue()) {
+                source.append("                if (args != null) {\n")
+                        .append("                    args.setClassLoader(").append(className).append(".class.getClassLoader());\n")
+                        .append("                }\n")
+                        .append("                return new ").append(className).append("(args);\n");
+            } else {
+                source.append("                return new ").append(className).append("();\n");
+            }
+        }
+        source.append("            default:\n")
+                .append("                return null;\n")
+                .append("        }\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ControllerChangeHandler createChangeHandler(String className) {\n")
+                .append("        Integer index = changeHandlers.get(className);\n")
+                .append("        if (index == null) {\n")
+                .append("            return null;\n")
+                .append("        }\n\n")
+                .append("        switch (index) {\n");
+        index = 0;
+        for (String changeHandler : changeHandlers) {
+            source.append("            case ").append(index++).append(":\n")
+                    .append("                return new ").append(changeHandler).append("();\n");
+        }
+        source.append("            default:\n")
+                .append("                return null;\n")
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("}\n");
+
+        return source.toString();
+    }
+
+    private static int capacity(int size) {
+        return Math.max(16, (int)(size / 0.75f) + 1);
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.bluelinelabs.conductor.compiler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConductorFactoryProcessorTest {
+
+    private static final String BUNDLE = ""
+            + "package android.os;\n"
+            + "public class Bundle {\n"
+            + "    public void setClassLoader(ClassLoader classLoader) { }\n"
+            + "}";
+    private static final String CONTROLLER = ""
+            + "package com.bluelinelabs.conductor;\n"
+            + "public abstract class Controller { }";
+    private static final String CHANGE_HANDLER = ""
+            + "package com.bluelinelabs.conductor;\n"
+            + "public abstract class ControllerChangeHandler { }";
+    private static final String CONTROLLER_FACTORY = ""
+            + "package com.bluelinelabs.conductor;\n"
+            + "public interface ControllerFactory {\n"
+            + "    Controller createController(String className, android.os.Bundle args);\n"
+            + "}";
+    private static final String CHANGE_HANDLER_FACTORY = ""
+            + "package com.bluelinelabs.conductor;\n"
+            + "public interface ChangeHandlerFactory {\n"
+            + "    ControllerChangeHandler createChangeHandler(String className);\n"
+            + "}";
+
+    private File outputDir;
+
+    @Before
+    public void setup() throws IOException {
+        outputDir = Files.createTempDirectory("conductor-compiler").toFile();
+    }
+
+    @Test
+    public void testGeneratesFactories() throws IOException {
+        String source = ""
+                + "package test;\n"
+                + "import android.os.Bundle;\n"
+                + "public class Sample {\n"
+                + "    public static class BundleController extends com.bluelinelabs.conductor.Controller {\n"
+                + "        public BundleController(Bundle args) { }\n"
+                + "    }\n"
+                + "    public static class DefaultController extends com.bluelinelabs.conductor.Controller { }\n"
+                + "    public static abstract class AbstractController extends com.bluelinelabs.conductor.Controller { }\n"
+                + "    static class PackagePrivateController extends com.bluelinelabs.conductor.Controller { }\n"
+                + "    public class InnerController extends com.bluelinelabs.conductor.Controller { }\n"
+                + "    public static class SampleChangeHandler extends com.bluelinelabs.conductor.ControllerChangeHandler { }\n"
+                + "}";
+
+        String generated = compile(Collections.<String>emptyList(), "test/Sample", source);
+
+        assertTrue(generated.contains("package com.bluelinelabs.conductor.generated;"));
+        assertTrue(generated.contains("return new test.Sample.BundleController(args);"));
+        assertTrue(generated.contains("return new test.Sample.DefaultController();"));
+        assertTrue(generated.contains("return new test.Sample.SampleChangeHandler();"));
+        assertFalse(generated.contains("AbstractController"));
+        assertFalse(generated.contains("PackagePrivateController"));
+        assertFalse(generated.contains("InnerController"));
+    }
+
+    @Test
+    public void testCustomFactoryName() throws IOException {
+        String source = ""
+                + "package test;\n"
+                + "public class SampleController extends com.bluelinelabs.conductor.Controller { }";
+
+        String generated = compile(Collections.singletonList("-A" + ConductorFactoryProcessor.OPTION_FACTORY_NAME + "=test.TestFactories"), "test/SampleController", source);
+
+        assertTrue(generated.contains("package test;"));
+        assertTrue(generated.contains("public final class TestFactories"));
+        assertTrue(generated.contains("return new test.SampleController();"));
+    }
+
+    private String compile(List<String> extraOptions, String sourcePath, String source) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        List<String> options = new ArrayList<>(Arrays.asList("-proc:only", "-s", outputDir.getAbsolutePath(), "-d", outputDir.getAbsolutePath()));
+        options.addAll(extraOptions);
+
+        List<JavaFileObject> sources = Arrays.asList(
+                source("android/os/Bundle", BUNDLE),
+                source("com/bluelinelabs/conductor/Controller", CONTROLLER),
+                source("com/bluelinelabs/conductor/ControllerChangeHandler", CHANGE_HANDLER),
+                source("com/bluelinelabs/conductor/ControllerFactory", CONTROLLER_FACTORY),
+                source("com/bluelinelabs/conductor/ChangeHandlerFactory", CHANGE_HANDLER_FACTORY),
+                source(sourcePath, source)
+        );
+
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, sources);
+        task.setProcessors(Collections.singletonList(new ConductorFactoryProcessor()));
+        assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            assertFalse(diagnostic.toString(), diagnostic.getKind() == Diagnostic.Kind.WARNING || diagnostic.getKind() == Diagnostic.Kind.MANDATORY_WARNING);
+        }
+
+        String factoryName = ConductorFactoryProcessor.DEFAULT_FACTORY_NAME;
+        for (String option : extraOptions) {
+            if (option.startsWith("-A" + ConductorFactoryProcessor.OPTION_FACTORY_NAME + "=")) {
+                factoryName = option.substring(option.indexOf('=') + 1);
+            }
+        }
+
+        File generatedFile = new File(outputDir, factoryName.replace('.', File.separatorChar) + ".java");
+        return new String(Files.readAllBytes(generatedFile.toPath()), Charset.forName("UTF-8"));
+    }
+
+    private static JavaFileObject source(String path, final String content) {
+        return new SimpleJavaFileObject(URI.create("string:///" + path + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return content;
+            }
+        };
+    }
+
+}
@@ -20,6 +20,11 @@ public class ControllerLifecycleSubjectHelper {
         final BehaviorSubject<ControllerEvent> subject = BehaviorSubject.create(ControllerEvent.CREATE);
 
         controller.addLifecycleListener(new LifecycleListener() {
+            @Override
+            public int getSubscribedEvents() {
+                return EVENT_PRE_CREATE_VIEW | EVENT_PRE_ATTACH | EVENT_PRE_DETACH | EVENT_PRE_DESTROY_VIEW | EVENT_PRE_DESTROY;
+            }
+
             @Override
             public void preCreateView(@NonNull Controller controller) {
                 subject.onNext(ControllerEvent.CREATE_VIEW);
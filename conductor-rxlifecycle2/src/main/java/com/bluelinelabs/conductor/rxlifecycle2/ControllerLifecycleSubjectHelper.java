@@ -13,6 +13,11 @@ public class ControllerLifecycleSubjectHelper {
         final BehaviorSubject<ControllerEvent> subject = BehaviorSubject.createDefault(ControllerEvent.CREATE);
 
         controller.addLifecycleListener(new Controller.LifecycleListener() {
+            @Override
+            public int getSubscribedEvents() {
+                return EVENT_PRE_CREATE_VIEW | EVENT_PRE_ATTACH | EVENT_PRE_DETACH | EVENT_PRE_DESTROY_VIEW | EVENT_PRE_DESTROY;
+            }
+
             @Override
             public void preCreateView(@NonNull Controller controller) {
                 subject.onNext(ControllerEvent.CREATE_VIEW);
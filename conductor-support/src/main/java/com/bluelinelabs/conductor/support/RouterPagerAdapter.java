@@ -10,6 +10,7 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.bluelinelabs.conductor.Controller;
+import com.bluelinelabs.conductor.Controller.LifecycleListener;
 import com.bluelinelabs.conductor.Router;
 import com.bluelinelabs.conductor.RouterTransaction;
 
@@ -25,11 +26,34 @@ public abstract class RouterPagerAdapter extends PagerAdapter {
     private static final String KEY_MAX_PAGES_TO_STATE_SAVE = "RouterPagerAdapter.maxPagesToStateSave";
     private static final String KEY_SAVE_PAGE_HISTORY = "RouterPagerAdapter.savedPageHistory";
 
+    // The number of most recently saved pages that keep their state when the system is low on memory
+    private static final int MIN_PAGES_TO_STATE_SAVE_ON_TRIM_MEMORY = 1;
+
     private final Controller host;
     private int maxPagesToStateSave = Integer.MAX_VALUE;
     private SparseArray<Bundle> savedPages = new SparseArray<>();
     private SparseArray<Router> visibleRouters = new SparseArray<>();
     private ArrayList<Integer> savedPageHistory = new ArrayList<>();
+    private boolean listeningForTrimMemory;
+
+    // Only registered while the host's view shows pages, so that adapters created for each view don't leak through the host
+    private final LifecycleListener trimMemoryListener = new LifecycleListener() {
+        @Override
+        public int getSubscribedEvents() {
+            return EVENT_TRIM_MEMORY | EVENT_POST_DESTROY_VIEW;
+        }
+
+        @Override
+        public void onTrimMemory(@NonNull Controller controller, int level) {
+            trimSavedPages(Math.min(maxPagesToStateSave, MIN_PAGES_TO_STATE_SAVE_ON_TRIM_MEMORY));
+        }
+
+        @Override
+        public void postDestroyView(@NonNull Controller controller) {
+            controller.removeLifecycleListener(this);
+            listeningForTrimMemory = false;
+        }
+    };
 
     /**
      * Creates a new RouterPagerAdapter using the passed host.
@@ -77,6 +101,11 @@ public abstract class RouterPagerAdapter extends PagerAdapter {
         router.rebindIfNeeded();
         configureRouter(router, position);
 
+        if (!listeningForTrimMemory) {
+            host.addLifecycleListener(trimMemoryListener);
+            listeningForTrimMemory = true;
+        }
+
         visibleRouters.put(position, router);
         return router;
     }
@@ -148,7 +177,11 @@ public abstract class RouterPagerAdapter extends PagerAdapter {
     }
 
     private void ensurePagesSaved() {
-        while (savedPages.size() > maxPagesToStateSave) {
+        trimSavedPages(maxPagesToStateSave);
+    }
+
+    private void trimSavedPages(int maxPages) {
+        while (savedPages.size() > maxPages) {
             int positionToRemove = savedPageHistory.remove(0);
             savedPages.remove(positionToRemove);
         }
@@ -1,6 +1,7 @@
 package com.bluelinelabs.conductor.support;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.util.SparseArray;
@@ -26,12 +27,13 @@ import static org.junit.Assert.assertEquals;
 @Config(manifest = Config.NONE)
 public class StateSaveTests {
 
+    private Router router;
     private FakePager pager;
     private RouterPagerAdapter pagerAdapter;
 
     public void createActivityController(Bundle savedInstanceState) {
         ActivityController<Activity> activityController = Robolectric.buildActivity(Activity.class).create().start().resume();
-        Router router = Conductor.attachRouter(activityController.get(), new FrameLayout(activityController.get()), savedInstanceState);
+        router = Conductor.attachRouter(activityController.get(), new FrameLayout(activityController.get()), savedInstanceState);
         TestController controller = new TestController();
         router.setRoot(RouterTransaction.with(controller));
 
@@ -73,6 +75,23 @@ public class StateSaveTests {
         assertEquals(pagerAdapter.getCount() - 1 - pager.getOffscreenPageLimit() * 2, pagerAdapter.getSavedPages().size());
     }
 
+    @Test
+    public void testSavedPagesTrimmedOnLowMemory() {
+        // Load all pages
+        for (int i = 0; i < pagerAdapter.getCount(); i++) {
+            pager.pageTo(i);
+        }
+
+        pager.pageTo(pagerAdapter.getCount() / 2);
+
+        router.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        // Only the most recently saved page is kept
+        SparseArray<Bundle> savedPages = pagerAdapter.getSavedPages();
+        assertEquals(1, savedPages.size());
+        assertEquals(pagerAdapter.getCount() - 3, savedPages.keyAt(0));
+    }
+
     @Test
     public void testMaxSavedSet() {
         final int maxPages = 3;
@@ -19,6 +19,11 @@ public class ActivityHostedRouter extends Router {
 
     private LifecycleHandler lifecycleHandler;
     private final TransactionIndexer transactionIndexer = new TransactionIndexer();
+    private final ChangeScheduler changeScheduler = new ChangeScheduler();
+
+    public ActivityHostedRouter() {
+        controllerIndex = new ControllerIndex();
+    }
 
     public final void setHost(@NonNull LifecycleHandler lifecycleHandler, @NonNull ViewGroup container) {
         if (this.lifecycleHandler != lifecycleHandler || this.container != container) {
@@ -51,6 +56,18 @@ public class ActivityHostedRouter extends Router {
         transactionIndexer.restoreInstanceState(savedInstanceState);
     }
 
+    /**
+     * Returns the Controller with the given instance id anywhere in this Router's tree, including all
+     * descendant child Routers, or {@code null} if no such Controller exists. This lookup is served by
+     * an index that is kept up to date as Controllers and child Routers are added and removed.
+     *
+     * @param instanceId The instance ID being searched for
+     */
+    @Override @Nullable
+    public Controller getControllerWithInstanceId(@NonNull String instanceId) {
+        return controllerIndex.get(instanceId);
+    }
+
     @Override @Nullable
     public Activity getActivity() {
         return lifecycleHandler != null ? lifecycleHandler.getLifecycleActivity() : null;
@@ -129,4 +146,9 @@ public class ActivityHostedRouter extends Router {
     TransactionIndexer getTransactionIndexer() {
         return transactionIndexer;
     }
+
+    @Override @NonNull
+    ChangeScheduler getChangeScheduler() {
+        return changeScheduler;
+    }
 }
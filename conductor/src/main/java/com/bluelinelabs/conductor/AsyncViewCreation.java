@@ -0,0 +1,179 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calls a {@link Controller}'s {@link Controller#onCreateView} on a shared background thread and hands the view
+ * back on the main thread. The {@link Callback} is called on the main thread once the view has been created or the
+ * timeout has passed, whichever comes first. The view is then taken by the Controller through {@link #takeView()}:
+ * if the background thread never got to it, it is created on the main thread instead, and if the background thread
+ * is still creating it, the main thread waits for it rather than calling {@link Controller#onCreateView} a second time.
+ */
+final class AsyncViewCreation implements Runnable {
+
+    interface Callback {
+        void onReady(@NonNull AsyncViewCreation creation);
+    }
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_CREATING_IN_BACKGROUND = 1;
+    private static final int STATE_LEFT_TO_MAIN_THREAD = 2;
+
+    private static Executor executor;
+    private static Handler mainHandler;
+
+    @NonNull private final Controller controller;
+    @NonNull private final LayoutInflater inflater;
+    @NonNull private final ViewGroup container;
+    @NonNull private final Callback callback;
+
+    // Decided once by whichever of the background thread and the main thread gets to this creation first
+    private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+    private final CountDownLatch created = new CountDownLatch(1);
+    private volatile View createdView;
+    private volatile Throwable creationError;
+    private volatile int backgroundThreadId;
+
+    // Only accessed on the main thread
+    private boolean finished;
+
+    private final Runnable timeout = new Runnable() {
+        @Override
+        public void run() {
+            finish();
+        }
+    };
+
+    private AsyncViewCreation(@NonNull Controller controller, @NonNull ViewGroup container, @NonNull Callback callback) {
+        this.controller = controller;
+        this.container = container;
+        this.callback = callback;
+
+        // Looking up the inflater goes through the Context's system services, which is best done on the main thread
+        inflater = LayoutInflater.from(container.getContext());
+    }
+
+    /**
+     * @param timeoutMillis The longest the callback waits for the view to be created in the background
+     */
+    @NonNull
+    static AsyncViewCreation start(@NonNull Controller controller, @NonNull ViewGroup container, long timeoutMillis, @NonNull Callback callback) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Conductor view creation");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            mainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        AsyncViewCreation creation = new AsyncViewCreation(controller, container, callback);
+        controller.prepareForAsyncViewCreation(creation);
+        executor.execute(creation);
+        mainHandler.postDelayed(creation.timeout, timeoutMillis);
+        return creation;
+    }
+
+    /**
+     * Calls the callback right away instead of waiting any longer for the view.
+     */
+    void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        mainHandler.removeCallbacks(timeout);
+        callback.onReady(this);
+    }
+
+    /**
+     * Makes sure the callback will never be called and that the background thread won't start creating the view. Only
+     * used for Controllers that will never need their view.
+     */
+    void cancel() {
+        finished = true;
+        mainHandler.removeCallbacks(timeout);
+        state.compareAndSet(STATE_PENDING, STATE_LEFT_TO_MAIN_THREAD);
+        controller.cancelAsyncViewCreation();
+    }
+
+    /**
+     * Returns the view created in the background, waiting for it if it is still being created, or {@code null} if
+     * the background thread never got to it and it has to be created on the main thread.
+     */
+    @Nullable
+    View takeView() {
+        if (state.compareAndSet(STATE_PENDING, STATE_LEFT_TO_MAIN_THREAD) || state.get() == STATE_LEFT_TO_MAIN_THREAD) {
+            return null;
+        }
+
+        // The main thread is blocked on it now, so it shouldn't be running at background priority any longer
+        try {
+            Process.setThreadPriority(backgroundThreadId, Process.THREAD_PRIORITY_DEFAULT);
+        } catch (IllegalArgumentException | SecurityException ignored) { }
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                created.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        Throwable error = creationError;
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException)error;
+        } else if (error instanceof Error) {
+            throw (Error)error;
+        } else if (error != null) {
+            throw new RuntimeException(error);
+        }
+        return createdView;
+    }
+
+    @Override
+    public void run() {
+        backgroundThreadId = Process.myTid();
+        if (!state.compareAndSet(STATE_PENDING, STATE_CREATING_IN_BACKGROUND)) {
+            return;
+        }
+
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+        try {
+            createdView = controller.createViewAsync(inflater, container);
+        } catch (Throwable t) {
+            creationError = t;
+        }
+        created.countDown();
+
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                finish();
+            }
+        });
+    }
+
+}
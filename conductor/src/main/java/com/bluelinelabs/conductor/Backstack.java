@@ -8,14 +8,17 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 class Backstack implements Iterable<RouterTransaction> {
 
     private static final String KEY_ENTRIES = "Backstack.entries";
 
     private final Deque<RouterTransaction> backstack = new ArrayDeque<>();
+    private final Map<String, TagEntry> tagEntries = new HashMap<>();
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     boolean isEmpty() {
@@ -57,8 +60,22 @@ class Backstack implements Iterable<RouterTransaction> {
 
     @NonNull
     RouterTransaction pop() {
+        return pop(false);
+    }
+
+    @NonNull
+    private RouterTransaction pop(boolean keepState) {
         RouterTransaction popped = backstack.pop();
-        popped.controller.destroy();
+        untag(popped);
+        if (!popped.isHibernated()) {
+            if (keepState) {
+                popped.controller.destroyKeepingState();
+            } else {
+                popped.controller.destroy();
+            }
+        } else if (!keepState) {
+            popped.onRemovedWhileHibernated();
+        }
         return popped;
     }
 
@@ -68,40 +85,58 @@ class Backstack implements Iterable<RouterTransaction> {
     }
 
     void remove(@NonNull RouterTransaction transaction) {
-        backstack.removeFirstOccurrence(transaction);
+        if (backstack.removeFirstOccurrence(transaction)) {
+            untag(transaction);
+        }
     }
 
     void push(@NonNull RouterTransaction transaction) {
         backstack.push(transaction);
+        tag(transaction);
+    }
+
+    /**
+     * Returns the top-most transaction with the passed tag or {@code null} if there is none.
+     */
+    @Nullable
+    RouterTransaction findByTag(@NonNull String tag) {
+        TagEntry entry = tagEntries.get(tag);
+        return entry != null ? entry.top : null;
     }
 
     @NonNull
     List<RouterTransaction> popAll() {
+        return popAll(false);
+    }
+
+    /**
+     * @param keepState Whether the saved state of the popped controllers is kept to recreate them later, in which case
+     *                  their activity result registrations are kept as well
+     */
+    @NonNull
+    List<RouterTransaction> popAll(boolean keepState) {
         List<RouterTransaction> list = new ArrayList<>();
         while (!isEmpty()) {
-            list.add(pop());
+            list.add(pop(keepState));
         }
         return list;
     }
 
-    void setBackstack(@NonNull List<RouterTransaction> backstack) {
-        for (RouterTransaction existingTransaction : this.backstack) {
-            boolean contains = false;
-            for (RouterTransaction newTransaction : backstack) {
-                if (existingTransaction.controller == newTransaction.controller) {
-                    contains = true;
-                    break;
+    void setBackstack(@NonNull BackstackDiff diff) {
+        for (RouterTransaction existingTransaction : backstack) {
+            if (!diff.isRetained(existingTransaction)) {
+                if (!existingTransaction.isHibernated()) {
+                    existingTransaction.controller.destroy();
+                } else {
+                    existingTransaction.onRemovedWhileHibernated();
                 }
             }
-
-            if (!contains) {
-                existingTransaction.controller.destroy();
-            }
         }
 
-        this.backstack.clear();
-        for (RouterTransaction transaction : backstack) {
-            this.backstack.push(transaction);
+        backstack.clear();
+        tagEntries.clear();
+        for (RouterTransaction transaction : diff.newBackstack) {
+            push(transaction);
         }
     }
 
@@ -123,8 +158,57 @@ class Backstack implements Iterable<RouterTransaction> {
         if (entryBundles != null) {
             Collections.reverse(entryBundles);
             for (Bundle transactionBundle : entryBundles) {
-                backstack.push(new RouterTransaction(transactionBundle));
+                push(new RouterTransaction(transactionBundle));
+            }
+        }
+    }
+
+    static void collectInstanceIds(@NonNull Bundle savedInstanceState, @NonNull List<String> instanceIds) {
+        ArrayList<Bundle> entryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
+        if (entryBundles != null) {
+            for (Bundle transactionBundle : entryBundles) {
+                RouterTransaction.collectInstanceIds(transactionBundle, instanceIds);
+            }
+        }
+    }
+
+    private void tag(@NonNull RouterTransaction transaction) {
+        String tag = transaction.tag();
+        if (tag != null) {
+            TagEntry entry = tagEntries.get(tag);
+            if (entry == null) {
+                entry = new TagEntry();
+                tagEntries.put(tag, entry);
+            }
+            entry.top = transaction;
+            entry.count++;
+        }
+    }
+
+    private void untag(@NonNull RouterTransaction transaction) {
+        String tag = transaction.tag();
+        if (tag != null) {
+            TagEntry entry = tagEntries.get(tag);
+            if (entry != null) {
+                entry.count--;
+                if (entry.count <= 0) {
+                    tagEntries.remove(tag);
+                } else if (entry.top == transaction) {
+                    // Only reached when the same tag was used more than once
+                    entry.top = null;
+                    for (RouterTransaction existing : backstack) {
+                        if (tag.equals(existing.tag())) {
+                            entry.top = existing;
+                            break;
+                        }
+                    }
+                }
             }
         }
     }
+
+    private static class TagEntry {
+        RouterTransaction top;
+        int count;
+    }
 }
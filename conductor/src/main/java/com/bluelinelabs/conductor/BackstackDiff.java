@@ -0,0 +1,144 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Set;
+
+/**
+ * Describes the difference between a {@link Backstack} and the new list of transactions that will replace it.
+ * All membership checks are backed by identity hash sets, so building and querying a diff is linear in the size
+ * of the two backstacks.
+ */
+final class BackstackDiff {
+
+    @NonNull final List<RouterTransaction> newBackstack;
+    @NonNull final List<RouterTransaction> oldVisibleTransactions;
+    @NonNull final List<RouterTransaction> newVisibleTransactions;
+
+    private final Set<RouterTransaction> oldTransactions;
+    private final Set<RouterTransaction> newTransactions;
+    private final Set<Controller> newControllers;
+    private final Set<RouterTransaction> oldVisibleSet;
+    private final Set<RouterTransaction> newVisibleSet;
+
+    BackstackDiff(@NonNull Backstack oldBackstack, @NonNull List<RouterTransaction> newBackstack) {
+        this.newBackstack = newBackstack;
+
+        oldTransactions = newIdentitySet(oldBackstack.size());
+        for (RouterTransaction transaction : oldBackstack) {
+            oldTransactions.add(transaction);
+        }
+
+        newTransactions = newIdentitySet(newBackstack.size());
+        newControllers = newIdentitySet(newBackstack.size());
+        for (RouterTransaction transaction : newBackstack) {
+            newTransactions.add(transaction);
+            if (!transaction.isHibernated()) {
+                newControllers.add(transaction.controller);
+            }
+        }
+
+        oldVisibleTransactions = visibleTransactions(oldBackstack.iterator());
+        newVisibleTransactions = visibleTransactions(newBackstack);
+
+        oldVisibleSet = newIdentitySet(oldVisibleTransactions.size());
+        oldVisibleSet.addAll(oldVisibleTransactions);
+        newVisibleSet = newIdentitySet(newVisibleTransactions.size());
+        newVisibleSet.addAll(newVisibleTransactions);
+    }
+
+    boolean wasOnBackstack(@NonNull RouterTransaction transaction) {
+        return oldTransactions.contains(transaction);
+    }
+
+    /**
+     * Returns whether the passed transaction's controller is still part of the new backstack. Hibernated
+     * transactions have no controller instance and are therefore matched by the transaction itself.
+     */
+    boolean isRetained(@NonNull RouterTransaction transaction) {
+        if (transaction.isHibernated()) {
+            return newTransactions.contains(transaction);
+        }
+        return newControllers.contains(transaction.controller);
+    }
+
+    boolean wasVisible(@NonNull RouterTransaction transaction) {
+        return oldVisibleSet.contains(transaction);
+    }
+
+    boolean isVisible(@NonNull RouterTransaction transaction) {
+        return newVisibleSet.contains(transaction);
+    }
+
+    boolean visibleTransactionsChanged() {
+        if (oldVisibleTransactions.size() != newVisibleTransactions.size()) {
+            return true;
+        }
+
+        for (int i = 0; i < newVisibleTransactions.size(); i++) {
+            if (newVisibleTransactions.get(i).controller != oldVisibleTransactions.get(i).controller) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the visible transactions, ordered from bottom to top, given an iterator that starts at the top of a backstack.
+     */
+    @NonNull
+    static List<RouterTransaction> visibleTransactions(@NonNull Iterator<RouterTransaction> topFirstIterator) {
+        List<RouterTransaction> transactions = new ArrayList<>();
+        while (topFirstIterator.hasNext()) {
+            RouterTransaction transaction = topFirstIterator.next();
+            transactions.add(transaction);
+
+            if (removesFromViewOnPush(transaction)) {
+                break;
+            }
+        }
+
+        Collections.reverse(transactions);
+        return transactions;
+    }
+
+    /**
+     * Returns the visible transactions, ordered from bottom to top, of a backstack ordered from root to top.
+     */
+    @NonNull
+    static List<RouterTransaction> visibleTransactions(@NonNull List<RouterTransaction> rootFirstBackstack) {
+        final int size = rootFirstBackstack.size();
+        if (size == 0) {
+            return new ArrayList<>();
+        }
+
+        int visibleCount = 0;
+        ListIterator<RouterTransaction> iterator = rootFirstBackstack.listIterator(size);
+        while (iterator.hasPrevious()) {
+            visibleCount++;
+            if (removesFromViewOnPush(iterator.previous())) {
+                break;
+            }
+        }
+
+        return new ArrayList<>(rootFirstBackstack.subList(size - visibleCount, size));
+    }
+
+    @NonNull
+    static <T> Set<T> newIdentitySet(int expectedSize) {
+        return Collections.newSetFromMap(new IdentityHashMap<T, Boolean>(expectedSize));
+    }
+
+    private static boolean removesFromViewOnPush(@NonNull RouterTransaction transaction) {
+        ControllerChangeHandler handler = transaction.pushChangeHandler();
+        return handler == null || handler.removesFromViewOnPush();
+    }
+
+}
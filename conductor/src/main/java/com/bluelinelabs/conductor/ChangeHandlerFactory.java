@@ -0,0 +1,21 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Creates {@link ControllerChangeHandler}s by class name without reflection. Implementations are generated by the
+ * conductor-compiler annotation processor and registered through {@link Conductor#addChangeHandlerFactory(ChangeHandlerFactory)}.
+ */
+public interface ChangeHandlerFactory {
+
+    /**
+     * Returns a new instance of the ControllerChangeHandler with the passed class name or {@code null} if this
+     * factory does not know how to create it.
+     *
+     * @param className The fully-qualified runtime name of the ControllerChangeHandler's class
+     */
+    @Nullable
+    ControllerChangeHandler createChangeHandler(@NonNull String className);
+
+}
@@ -0,0 +1,133 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares restored {@link ControllerChangeHandler}s with identical saved state and recycles the copies that are made
+ * every time a non-reusable handler is used more than once, so that repeated navigation doesn't allocate new
+ * handlers for each change.
+ */
+final class ChangeHandlerPool {
+
+    private static final int MAX_POOL_SIZE = 4;
+    private static final int MAX_INTERNED_HANDLERS = 64;
+
+    private static final Map<Class<?>, ArrayDeque<ControllerChangeHandler>> pools = new HashMap<>();
+    private static final Map<String, ControllerChangeHandler> internedHandlers = new HashMap<>();
+    private static final ArrayDeque<ControllerChangeHandler> pendingRecycles = new ArrayDeque<>();
+    private static Handler mainHandler;
+
+    private static final Runnable recyclePending = new Runnable() {
+        @Override
+        public void run() {
+            ControllerChangeHandler handler;
+            while ((handler = pendingRecycles.poll()) != null) {
+                recycle(handler);
+            }
+        }
+    };
+
+    private ChangeHandlerPool() { }
+
+    /**
+     * Returns a handler equivalent to {@code handler.copy()}, reusing a previously recycled instance if possible.
+     */
+    @NonNull
+    static ControllerChangeHandler copyOf(@NonNull ControllerChangeHandler handler) {
+        if (handler.isRecyclable()) {
+            ArrayDeque<ControllerChangeHandler> pool = pools.get(handler.getClass());
+            ControllerChangeHandler recycled = pool != null ? pool.poll() : null;
+            if (recycled != null) {
+                recycled.recycleFrom(handler);
+                return recycled;
+            }
+        }
+        return handler.copy();
+    }
+
+    /**
+     * Makes a handler that is no longer referenced by any in-progress change available to {@link #copyOf}.
+     */
+    static void recycle(@NonNull ControllerChangeHandler handler) {
+        if (!handler.isRecyclable()) {
+            return;
+        }
+
+        ArrayDeque<ControllerChangeHandler> pool = pools.get(handler.getClass());
+        if (pool == null) {
+            pool = new ArrayDeque<>(MAX_POOL_SIZE);
+            pools.put(handler.getClass(), pool);
+        }
+        if (pool.size() < MAX_POOL_SIZE && !pool.contains(handler)) {
+            pool.push(handler);
+        }
+    }
+
+    /**
+     * Recycles a handler once the change using it has completed. Handlers report completion before they are done
+     * with their own cleanup (ex: AnimatorChangeHandler releases its animator afterwards), so they are only recycled
+     * once the current main thread message has been handled.
+     */
+    static void recycleAfterCompletion(@NonNull ControllerChangeHandler handler) {
+        if (!handler.isRecyclable()) {
+            return;
+        }
+
+        if (mainHandler == null) {
+            mainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        // All handlers completed within the same message are recycled together by a single post
+        if (pendingRecycles.isEmpty()) {
+            mainHandler.post(recyclePending);
+        }
+        pendingRecycles.add(handler);
+    }
+
+    @Nullable
+    static ControllerChangeHandler getInterned(@NonNull String internKey) {
+        return internedHandlers.get(internKey);
+    }
+
+    static void intern(@NonNull String internKey, @NonNull ControllerChangeHandler handler) {
+        if (internedHandlers.size() < MAX_INTERNED_HANDLERS) {
+            internedHandlers.put(internKey, handler);
+        }
+    }
+
+    /**
+     * Returns a key that is equal for all handlers of the same class restored from equal saved state, or {@code null}
+     * if the saved state holds anything other than primitives and Strings and can't be compared cheaply.
+     */
+    @Nullable
+    static String internKey(@NonNull String className, @NonNull Bundle savedState) {
+        List<String> keys = new ArrayList<>(savedState.keySet());
+        Collections.sort(keys);
+
+        StringBuilder internKey = new StringBuilder(className);
+        for (String key : keys) {
+            Object value = savedState.get(key);
+            if (value != null && !(value instanceof String) && !(value instanceof Number) && !(value instanceof Boolean) && !(value instanceof Character)) {
+                return null;
+            }
+
+            internKey.append('\u0000').append(key).append('=');
+            if (value != null) {
+                internKey.append(value.getClass().getSimpleName()).append(':').append(value);
+            }
+        }
+        return internKey.toString();
+    }
+
+}
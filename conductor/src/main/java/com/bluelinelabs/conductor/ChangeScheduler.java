@@ -0,0 +1,154 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+
+import com.bluelinelabs.conductor.ControllerChangeHandler.ChangeTransaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Queues the changes of a root {@link Router} and all of its child Routers and executes them together once per
+ * frame. Before a change is queued, it is coalesced with the change queued right before it for the same Router:
+ * pushing a Controller and popping it again cancels both changes out, and pushing on top of a Controller whose own
+ * push hasn't run yet replaces that push, so only the net change is ever inflated and animated.
+ */
+final class ChangeScheduler implements Choreographer.FrameCallback {
+
+    private final List<ScheduledChange> scheduledChanges = new ArrayList<>();
+    private boolean enabled;
+    private boolean frameCallbackPosted;
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+
+        if (!enabled) {
+            runScheduledChanges();
+        }
+    }
+
+    void schedule(@NonNull Router router, @NonNull ChangeTransaction transaction) {
+        int lastIndex = scheduledChanges.size() - 1;
+        ScheduledChange last = lastIndex >= 0 ? scheduledChanges.get(lastIndex) : null;
+
+        if (last != null && last.router == router) {
+            if (cancelsOut(last.transaction, transaction)) {
+                scheduledChanges.remove(lastIndex);
+                return;
+            }
+
+            ChangeTransaction replacement = replacement(last.transaction, transaction);
+            if (replacement != null) {
+                last.transaction = replacement;
+                return;
+            }
+        }
+
+        scheduledChanges.add(new ScheduledChange(router, transaction));
+
+        if (!frameCallbackPosted) {
+            frameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    boolean hasScheduledChanges(@NonNull Router router) {
+        for (ScheduledChange scheduledChange : scheduledChanges) {
+            if (scheduledChange.router == router) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops all changes queued for the passed Router, whose container is about to be removed. Controllers that would
+     * have been pushed are marked as needing to be attached so that they are shown once the Router is rebound.
+     */
+    void cancelScheduledChanges(@NonNull Router router) {
+        for (int i = scheduledChanges.size() - 1; i >= 0; i--) {
+            ScheduledChange scheduledChange = scheduledChanges.get(i);
+            if (scheduledChange.router == router) {
+                scheduledChanges.remove(i);
+
+                Controller to = scheduledChange.transaction.to;
+                if (to != null && !to.isBeingDestroyed()) {
+                    to.setNeedsAttach(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes all queued changes right away, in the order they were queued.
+     */
+    void runScheduledChanges() {
+        if (frameCallbackPosted) {
+            frameCallbackPosted = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        List<Router> routers = new ArrayList<>();
+
+        // Changes queued while these run (ex: if a controller is popped from within onAttach) are run in this frame as well
+        while (!scheduledChanges.isEmpty()) {
+            ScheduledChange scheduledChange = scheduledChanges.remove(0);
+            scheduledChange.router.executeControllerChange(scheduledChange.transaction);
+
+            if (!routers.contains(scheduledChange.router)) {
+                routers.add(scheduledChange.router);
+            }
+        }
+
+        for (Router router : routers) {
+            router.onScheduledChangesExecuted();
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameCallbackPosted = false;
+        runScheduledChanges();
+    }
+
+    private static boolean cancelsOut(@NonNull ChangeTransaction first, @NonNull ChangeTransaction second) {
+        return first.isPush && !second.isPush && first.to != null && first.container == second.container
+                && second.from == first.to && second.to == first.from;
+    }
+
+    /**
+     * Returns a single push that has the same result as pushing {@code second} on top of the Controller that
+     * {@code first} pushes, or {@code null} if the two can't be combined.
+     */
+    @Nullable
+    private static ChangeTransaction replacement(@NonNull ChangeTransaction first, @NonNull ChangeTransaction second) {
+        // Controllers that stay visible below another one have to be added to the container, so only changes that
+        // remove the view they're pushed on top of can be combined
+        if (first.isPush && second.isPush && first.to != null && first.container == second.container && second.from == first.to
+                && removesFromViewOnPush(first.changeHandler) && removesFromViewOnPush(second.changeHandler)) {
+            return new ChangeTransaction(second.to, first.from, true, second.container, second.changeHandler, second.listeners, second.navigationStartNanos);
+        }
+        return null;
+    }
+
+    private static boolean removesFromViewOnPush(@Nullable ControllerChangeHandler changeHandler) {
+        return changeHandler == null || changeHandler.removesFromViewOnPush();
+    }
+
+    private static class ScheduledChange {
+        @NonNull final Router router;
+        @NonNull ChangeTransaction transaction;
+
+        ScheduledChange(@NonNull Router router, @NonNull ChangeTransaction transaction) {
+            this.router = router;
+            this.transaction = transaction;
+        }
+    }
+
+}
@@ -7,6 +7,7 @@ import android.support.annotation.Nullable;
 import android.support.annotation.UiThread;
 import android.view.ViewGroup;
 
+import com.bluelinelabs.conductor.internal.FactoryRegistry;
 import com.bluelinelabs.conductor.internal.LifecycleHandler;
 import com.bluelinelabs.conductor.internal.ThreadUtils;
 
@@ -41,4 +42,60 @@ public final class Conductor {
         return router;
     }
 
+    /**
+     * Registers a {@link ControllerFactory}, such as the one generated by conductor-compiler, that will be used
+     * instead of reflection when {@link Controller}s are recreated from their saved state. Factories are consulted
+     * in the order they were added; classes none of them can create still fall back to reflection.
+     *
+     * @param factory The factory to register
+     */
+    public static void addControllerFactory(@NonNull ControllerFactory factory) {
+        FactoryRegistry.addControllerFactory(factory);
+    }
+
+    /**
+     * Registers a {@link ChangeHandlerFactory}, such as the one generated by conductor-compiler, that will be used
+     * instead of reflection when {@link ControllerChangeHandler}s are copied or recreated from their saved state.
+     * Factories are consulted in the order they were added; classes none of them can create still fall back to
+     * reflection.
+     *
+     * @param factory The factory to register
+     */
+    public static void addChangeHandlerFactory(@NonNull ChangeHandlerFactory factory) {
+        FactoryRegistry.addChangeHandlerFactory(factory);
+    }
+
+    /**
+     * Limits the views that {@link Controller}s across all {@link Router}s keep while detached, whether because of
+     * {@link Controller.RetainViewMode#RETAIN_DETACH} or {@link Router#setViewRetentionDepth(int)}. Once either limit
+     * is exceeded, the views that were detached longest ago are released, just as if their Controllers had used
+     * {@link Controller.RetainViewMode#RELEASE_DETACH}. The memory held by a view is approximated by its width times its
+     * height at 4 bytes per pixel. Both are unlimited by default.
+     *
+     * @param maxViews The maximum number of views kept while detached
+     * @param maxBytes The maximum approximate number of bytes held by views kept while detached
+     */
+    @UiThread
+    public static void setRetainedViewBudget(int maxViews, long maxBytes) {
+        ThreadUtils.ensureMainThread();
+
+        if (maxViews < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("The retained view budget can not be negative.");
+        }
+
+        RetainedViews.setBudget(maxViews, maxBytes);
+    }
+
+    /**
+     * Sets whether or not Conductor should emit {@link android.os.Trace} sections, named after the Controller or
+     * ControllerChangeHandler involved, around view creation, view state restoration, change handling,
+     * {@link Router#setBackstack} and state saving. This is off by default, has no effect before API 18 and costs
+     * a single boolean check per section while off, so it can be safely left in release builds.
+     *
+     * @param enabled Whether or not trace sections should be emitted
+     */
+    public static void setTracingEnabled(boolean enabled) {
+        Tracing.setEnabled(enabled);
+    }
+
 }
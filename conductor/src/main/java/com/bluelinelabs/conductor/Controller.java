@@ -22,7 +22,9 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.bluelinelabs.conductor.internal.ClassUtils;
+import com.bluelinelabs.conductor.internal.FactoryRegistry;
 import com.bluelinelabs.conductor.internal.RouterRequiringFunc;
+import com.bluelinelabs.conductor.internal.ThreadUtils;
 import com.bluelinelabs.conductor.internal.ViewAttachHandler;
 import com.bluelinelabs.conductor.internal.ViewAttachHandler.ViewAttachListener;
 
@@ -33,7 +35,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * A Controller manages portions of the UI. It is similar to an Activity or Fragment in that it manages its
@@ -63,6 +64,8 @@ public abstract class Controller {
     Bundle viewState;
     private Bundle savedInstanceState;
     private boolean isBeingDestroyed;
+    // Set when this instance is destroyed only to be released, while its saved state is kept to recreate it later
+    private boolean keepsStateOnDestroy;
     private boolean destroyed;
     private boolean attached;
     private boolean hasOptionsMenu;
@@ -73,6 +76,7 @@ public abstract class Controller {
     private View view;
     private Controller parentController;
     private String instanceId;
+    private long instanceSequence;
     private String targetInstanceId;
     private boolean needsAttach;
     private boolean attachedToUnownedParent;
@@ -82,39 +86,84 @@ public abstract class Controller {
     private ControllerChangeHandler overriddenPopHandler;
     private RetainViewMode retainViewMode = RetainViewMode.RELEASE_DETACH;
     private ViewAttachHandler viewAttachHandler;
-    private final List<ControllerHostedRouter> childRouters = new ArrayList<>();
-    private final List<LifecycleListener> lifecycleListeners = new ArrayList<>();
+    final List<ControllerHostedRouter> childRouters = new ArrayList<>();
+    private final LifecycleListeners lifecycleListeners = new LifecycleListeners();
     private final ArrayList<String> requestedPermissions = new ArrayList<>();
     private final ArrayList<RouterRequiringFunc> onRouterSetListeners = new ArrayList<>();
     private WeakReference<View> destroyedView;
     private boolean isPerformingExitTransition;
+    private AsyncViewCreation asyncViewCreation;
+
+    // The hierarchy state of a RECYCLE Controller's view as it was created, which is reset to before it is rebound
+    private SparseArray<Parcelable> pristineHierarchyState;
+
+    // The change currently moving this Controller's view in, if any
+    ControllerChangeHandler.ChangeHandlerData inProgressChange;
 
     @NonNull
     static Controller newInstance(@NonNull Bundle bundle) {
-        final String className = bundle.getString(KEY_CLASS_NAME);
         //noinspection ConstantConditions
-        Class cls = ClassUtils.classForName(className, false);
-        Constructor[] constructors = cls.getConstructors();
-        Constructor bundleConstructor = getBundleConstructor(constructors);
+        Controller controller = newInstance(bundle.getString(KEY_CLASS_NAME), bundle.getBundle(KEY_ARGS));
+        controller.restoreInstanceState(bundle);
+        return controller;
+    }
+
+    /**
+     * Creates a new instance of the Controller with the passed class name through the registered
+     * {@link ControllerFactory}s, falling back to its Bundle or default constructor.
+     */
+    @NonNull
+    static Controller newInstance(@NonNull String className, @Nullable Bundle args) {
+        Controller controller = FactoryRegistry.createController(className, args);
+        if (controller == null) {
+            controller = newInstanceReflectively(className, args);
+        }
+        return controller;
+    }
+
+    @NonNull
+    private static Controller newInstanceReflectively(@NonNull String className, @Nullable Bundle args) {
+        Class<? extends Controller> cls = ClassUtils.classForName(className, false);
+        //noinspection ConstantConditions
+        Constructor<? extends Controller> bundleConstructor = ClassUtils.getSingleArgumentConstructor(cls, Bundle.class);
 
-        Controller controller;
         try {
             if (bundleConstructor != null) {
-                Bundle args = bundle.getBundle(KEY_ARGS);
                 if (args != null) {
                     args.setClassLoader(cls.getClassLoader());
                 }
-                controller = (Controller)bundleConstructor.newInstance(args);
+                return bundleConstructor.newInstance(args);
             } else {
                 //noinspection ConstantConditions
-                controller = (Controller)getDefaultConstructor(constructors).newInstance();
+                return ClassUtils.getDefaultConstructor(cls).newInstance();
             }
         } catch (Exception e) {
             throw new RuntimeException("An exception occurred while creating a new instance of " + className + ". " + e.getMessage(), e);
         }
+    }
 
-        controller.restoreInstanceState(bundle);
-        return controller;
+    @Nullable
+    static String getInstanceId(@NonNull Bundle bundle) {
+        return bundle.getString(KEY_INSTANCE_ID);
+    }
+
+    static boolean getNeedsAttach(@NonNull Bundle bundle) {
+        return bundle.getBoolean(KEY_NEEDS_ATTACH);
+    }
+
+    /**
+     * Adds the instance ID saved in the passed bundle, along with those of all controllers saved in its child
+     * Routers, without instantiating any of them.
+     */
+    static void collectInstanceIds(@NonNull Bundle bundle, @NonNull List<String> instanceIds) {
+        instanceIds.add(bundle.getString(KEY_INSTANCE_ID));
+
+        List<Bundle> childBundles = bundle.getParcelableArrayList(KEY_CHILD_ROUTERS);
+        if (childBundles != null) {
+            for (Bundle childBundle : childBundles) {
+                Router.collectInstanceIds(childBundle, instanceIds);
+            }
+        }
     }
 
     /**
@@ -131,7 +180,7 @@ public abstract class Controller {
      */
     protected Controller(@Nullable Bundle args) {
         this.args = args != null ? args : new Bundle(getClass().getClassLoader());
-        instanceId = UUID.randomUUID().toString();
+        instanceSequence = InstanceIds.next();
         ensureRequiredConstructor();
     }
 
@@ -148,6 +197,43 @@ public abstract class Controller {
     @NonNull
     protected abstract View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container);
 
+    /**
+     * Called instead of {@link #onCreateView(LayoutInflater, ViewGroup)} when this Controller uses
+     * {@link RetainViewMode#RECYCLE} and its Router holds a view released by another Controller of the same class. The
+     * view still shows that Controller's content, so this should bind all of this Controller's data to it, just like
+     * {@link #onCreateView(LayoutInflater, ViewGroup)} would. Any saved view state of this Controller is restored
+     * afterwards. Returning false discards the view and creates a new one instead. Defaults to false.
+     *
+     * @param view A view previously returned by {@link #onCreateView(LayoutInflater, ViewGroup)} of this class
+     * @return Whether or not the view was rebound and can be used by this Controller
+     */
+    protected boolean onRebindView(@NonNull View view) {
+        return false;
+    }
+
+    /**
+     * Should be overridden to return true if {@link #onCreateView(LayoutInflater, ViewGroup)} can safely be called
+     * on a background thread, which allows {@link Router#pushControllerAsync(RouterTransaction)} to create this
+     * Controller's view before the change starts. This requires that it only inflates and binds views, without
+     * touching other views, creating Handlers or otherwise relying on being called on the main thread. All other
+     * lifecycle methods, including {@link #onRestoreViewState(View, Bundle)}, are still called on the main thread.
+     * Defaults to false.
+     */
+    protected boolean canCreateViewAsync() {
+        return false;
+    }
+
+    /**
+     * Should be overridden to return true if this Controller's view can be created before it is pushed, which allows a
+     * {@link NavigationPredictor} to create it ahead of time when this Controller's class is likely to be pushed next.
+     * Only Controllers created through their default constructor are prefetched. Their view is discarded along with
+     * them once the next change starts, unless the app obtained them through
+     * {@link NavigationPredictor#obtainPrefetched(Class)}. Defaults to false.
+     */
+    protected boolean canPrefetchView() {
+        return false;
+    }
+
     /**
      * Returns the {@link Router} object that can be used for pushing or popping other Controllers
      */
@@ -218,6 +304,11 @@ public abstract class Controller {
                 childRouter.setHost(this, container);
                 childRouters.add(childRouter);
 
+                ControllerIndex controllerIndex = router != null ? router.controllerIndex : null;
+                if (controllerIndex != null && controllerIndex.contains(this)) {
+                    controllerIndex.add(childRouter);
+                }
+
                 if (isPerformingExitTransition) {
                     childRouter.setDetachFrozen(true);
                 }
@@ -230,6 +321,35 @@ public abstract class Controller {
         return childRouter;
     }
 
+    /**
+     * Queues work to be run once this Controller's {@link Router} has no changes in progress, including the one
+     * currently moving this Controller in or out, so that expensive setup doesn't compete with change handlers for
+     * frames. The work is cancelled if this Controller is detached or destroyed before it has run.
+     *
+     * @param work The work to run
+     */
+    public final void postAfterChange(@NonNull Runnable work) {
+        postAfterChange(work, 0);
+    }
+
+    /**
+     * Queues work to be run once this Controller's {@link Router} has no changes in progress, including the one
+     * currently moving this Controller in or out, so that expensive setup doesn't compete with change handlers for
+     * frames. Work with a higher priority runs first. The work is cancelled if this Controller is detached or
+     * destroyed before it has run.
+     *
+     * @param work     The work to run
+     * @param priority The priority of this work relative to other work queued on the same Router
+     */
+    public final void postAfterChange(@NonNull Runnable work, int priority) {
+        ThreadUtils.ensureMainThread();
+
+        if (router == null) {
+            throw new IllegalStateException("Work can only be posted after this Controller has been added to a Router.");
+        }
+        router.postAfterChange(work, priority, this);
+    }
+
     /**
      * Removes a child {@link Router} from this Controller. When removed, all Controllers currently managed by
      * the {@link Router} will be destroyed.
@@ -239,6 +359,7 @@ public abstract class Controller {
     public final void removeChildRouter(@NonNull Router childRouter) {
         if ((childRouter instanceof ControllerHostedRouter) && childRouters.remove(childRouter)) {
             childRouter.destroy(true);
+            childRouter.controllerIndex = null;
         }
     }
 
@@ -316,6 +437,9 @@ public abstract class Controller {
      */
     @NonNull
     public final String getInstanceId() {
+        if (instanceId == null) {
+            instanceId = InstanceIds.format(instanceSequence);
+        }
         return instanceId;
     }
 
@@ -327,7 +451,7 @@ public abstract class Controller {
      */
     @Nullable
     final Controller findController(@NonNull String instanceId) {
-        if (this.instanceId.equals(instanceId)) {
+        if (getInstanceId().equals(instanceId)) {
             return this;
         }
 
@@ -492,7 +616,7 @@ public abstract class Controller {
      */
     public final void startActivityForResult(@NonNull final Intent intent, final int requestCode) {
         executeWithRouter(new RouterRequiringFunc() {
-            @Override public void execute() { router.startActivityForResult(instanceId, intent, requestCode); }
+            @Override public void execute() { router.startActivityForResult(getInstanceId(), intent, requestCode); }
         });
     }
 
@@ -501,7 +625,7 @@ public abstract class Controller {
      */
     public final void startActivityForResult(@NonNull final Intent intent, final int requestCode, @Nullable final Bundle options) {
         executeWithRouter(new RouterRequiringFunc() {
-            @Override public void execute() { router.startActivityForResult(instanceId, intent, requestCode, options); }
+            @Override public void execute() { router.startActivityForResult(getInstanceId(), intent, requestCode, options); }
         });
     }
 
@@ -510,7 +634,7 @@ public abstract class Controller {
      */
     public final void startIntentSenderForResult(@NonNull final IntentSender intent, final int requestCode, @Nullable final Intent fillInIntent, final int flagsMask,
                                                  final int flagsValues, final int extraFlags, @Nullable final Bundle options) throws IntentSender.SendIntentException {
-        router.startIntentSenderForResult(instanceId, intent, requestCode, fillInIntent, flagsMask, flagsValues, extraFlags, options);
+        router.startIntentSenderForResult(getInstanceId(), intent, requestCode, fillInIntent, flagsMask, flagsValues, extraFlags, options);
     }
 
     /**
@@ -521,7 +645,7 @@ public abstract class Controller {
      */
     public final void registerForActivityResult(final int requestCode) {
         executeWithRouter(new RouterRequiringFunc() {
-            @Override public void execute() { router.registerForActivityResult(instanceId, requestCode); }
+            @Override public void execute() { router.registerForActivityResult(getInstanceId(), requestCode); }
         });
     }
 
@@ -545,7 +669,7 @@ public abstract class Controller {
         requestedPermissions.addAll(Arrays.asList(permissions));
 
         executeWithRouter(new RouterRequiringFunc() {
-            @Override public void execute() { router.requestPermissions(instanceId, permissions, requestCode); }
+            @Override public void execute() { router.requestPermissions(getInstanceId(), permissions, requestCode); }
         });
     }
 
@@ -590,7 +714,7 @@ public abstract class Controller {
         for (RouterTransaction transaction : childTransactions) {
             Controller childController = transaction.controller;
 
-            if (childController.isAttached() && childController.getRouter().handleBack()) {
+            if (childController != null && childController.isAttached() && childController.getRouter().handleBack()) {
                 return true;
             }
         }
@@ -604,9 +728,7 @@ public abstract class Controller {
      * @param lifecycleListener The listener
      */
     public final void addLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
-        if (!lifecycleListeners.contains(lifecycleListener)) {
-            lifecycleListeners.add(lifecycleListener);
-        }
+        lifecycleListeners.add(lifecycleListener);
     }
 
     /**
@@ -632,7 +754,7 @@ public abstract class Controller {
      */
     public void setRetainViewMode(@NonNull RetainViewMode retainViewMode) {
         this.retainViewMode = retainViewMode != null ? retainViewMode : RetainViewMode.RELEASE_DETACH;
-        if (this.retainViewMode == RetainViewMode.RELEASE_DETACH && !attached) {
+        if (!retainsViewWhenDetached() && !attached) {
             removeViewReference();
         }
     }
@@ -747,6 +869,29 @@ public abstract class Controller {
         return needsAttach;
     }
 
+    /**
+     * Returns whether this controller can be released and later recreated from its saved state without anything
+     * on screen noticing, i.e. neither it nor any of its child controllers hold a view or are changing.
+     */
+    final boolean canHibernate() {
+        return !needsAttach && requestedPermissions.isEmpty() && !holdsViews();
+    }
+
+    private boolean holdsViews() {
+        if (attached || view != null || isBeingDestroyed || destroyed || isPerformingExitTransition) {
+            return true;
+        }
+
+        for (ControllerHostedRouter childRouter : childRouters) {
+            for (RouterTransaction transaction : childRouter.backstack) {
+                if (!transaction.isHibernated() && transaction.controller.holdsViews()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     final boolean didRequestPermission(@NonNull String permission) {
         return requestedPermissions.contains(permission);
     }
@@ -824,9 +969,9 @@ public abstract class Controller {
         }
 
         hasSavedViewState = false;
+        RetainedViews.remove(this);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-        for (LifecycleListener lifecycleListener : listeners) {
+        for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_PRE_ATTACH)) {
             lifecycleListener.preAttach(this, view);
         }
 
@@ -835,12 +980,15 @@ public abstract class Controller {
 
         onAttach(view);
 
+        if (inProgressChange != null && inProgressChange.navigationStartNanos != 0) {
+            NavigationMetrics.record(NavigationMetrics.Metric.ATTACH, getClass(), inProgressChange.changeHandler.getClass(), System.nanoTime() - inProgressChange.navigationStartNanos);
+        }
+
         if (hasOptionsMenu && !optionsMenuHidden) {
             router.invalidateOptionsMenu();
         }
 
-        listeners = new ArrayList<>(lifecycleListeners);
-        for (LifecycleListener lifecycleListener : listeners) {
+        for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_POST_ATTACH)) {
             lifecycleListener.postAttach(Controller.this, view);
         }
     }
@@ -852,40 +1000,97 @@ public abstract class Controller {
             }
         }
 
-        final boolean removeViewRef = !blockViewRefRemoval && (forceViewRefRemoval || retainViewMode == RetainViewMode.RELEASE_DETACH || isBeingDestroyed);
+        final boolean removeViewRef = !blockViewRefRemoval && (forceViewRefRemoval || !retainsViewWhenDetached() || isBeingDestroyed);
 
         if (attached) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
+            for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_PRE_DETACH)) {
                 lifecycleListener.preDetach(this, view);
             }
 
             attached = false;
             onDetach(view);
 
+            if (router != null) {
+                router.cancelPostAfterChange(this);
+            }
+
             if (hasOptionsMenu && !optionsMenuHidden) {
                 router.invalidateOptionsMenu();
             }
 
-            listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
+            for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_POST_DETACH)) {
                 lifecycleListener.postDetach(this, view);
             }
         }
 
         if (removeViewRef) {
             removeViewReference();
+        } else if (!blockViewRefRemoval && !attached) {
+            RetainedViews.retain(this, view);
+        }
+    }
+
+    /**
+     * Returns whether or not this Controller keeps its view while detached, which its Router's view retention depth
+     * decides over its {@link RetainViewMode} if set.
+     */
+    private boolean retainsViewWhenDetached() {
+        if (retainViewMode == RetainViewMode.RECYCLE) {
+            return false;
+        } else if (router != null && router.getViewRetentionDepth() > 0) {
+            return router.isWithinViewRetentionWindow(this);
+        } else {
+            return retainViewMode == RetainViewMode.RETAIN_DETACH;
+        }
+    }
+
+    /**
+     * Called before Conductor frees memory held by this Controller in response to
+     * {@link android.content.ComponentCallbacks2#onTrimMemory(int)}. See {@link Router#onTrimMemory(int)} for the trim
+     * levels at which each action is taken. Controllers that would be expensive to restore can return false to veto
+     * an action. Defaults to true.
+     *
+     * @param action The action about to be taken
+     * @return Whether or not the action may be taken on this Controller
+     */
+    protected boolean shouldTrimMemory(@NonNull TrimMemoryAction action) {
+        return true;
+    }
+
+    final void trimMemory(int level, boolean releaseView, boolean dropSavedState, boolean dropViewState) {
+        if (releaseView && view != null && !attached && shouldTrimMemory(TrimMemoryAction.RELEASE_VIEW)) {
+            releaseRetainedView();
+        }
+
+        if (dropSavedState && shouldTrimMemory(TrimMemoryAction.DROP_SAVED_STATE)) {
+            if (dropViewState && view == null) {
+                viewState = null;
+            }
+
+            for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_TRIM_MEMORY)) {
+                lifecycleListener.onTrimMemory(this, level);
+            }
+        }
+    }
+
+    /**
+     * Releases this Controller's view if it is only being held on to while detached and no longer in use.
+     */
+    final void releaseRetainedView() {
+        if (view != null && !attached && !needsAttach && !isBeingDestroyed && !isPerformingExitTransition && view.getParent() == null) {
+            removeViewReference();
         }
     }
 
     private void removeViewReference() {
         if (view != null) {
+            RetainedViews.remove(this);
+
             if (!isBeingDestroyed && !hasSavedViewState) {
                 saveViewState(view);
             }
 
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
+            for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_PRE_DESTROY_VIEW)) {
                 lifecycleListener.preDestroyView(this, view);
             }
 
@@ -898,13 +1103,20 @@ public abstract class Controller {
             if (isBeingDestroyed) {
                 destroyedView = new WeakReference<>(view);
             }
+            View releasedView = view;
+            SparseArray<Parcelable> releasedPristineHierarchyState = pristineHierarchyState;
             view = null;
+            pristineHierarchyState = null;
 
-            listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
+            for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_POST_DESTROY_VIEW)) {
                 lifecycleListener.postDestroyView(this);
             }
 
+            // Child Controllers' views may still be in the view's child containers, so it can't be used by anyone else
+            if (releasedPristineHierarchyState != null && router != null && childRouters.isEmpty()) {
+                router.recycleView(this, releasedView, releasedPristineHierarchyState);
+            }
+
             for (ControllerHostedRouter childRouter : childRouters) {
                 childRouter.removeHost();
             }
@@ -922,22 +1134,64 @@ public abstract class Controller {
         }
 
         if (view == null) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
-                lifecycleListener.preCreateView(this);
+            // Listeners have already been told about view creation if it was started on a background thread
+            if (asyncViewCreation == null) {
+                for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_PRE_CREATE_VIEW)) {
+                    lifecycleListener.preCreateView(this);
+                }
+            }
+
+            long inflationStartNanos = NavigationMetrics.isEnabled() ? System.nanoTime() : 0;
+
+            View asyncCreatedView = null;
+            if (asyncViewCreation != null) {
+                asyncCreatedView = asyncViewCreation.takeView();
+                asyncViewCreation = null;
+
+                // A view created for the container of another Activity can't be used
+                if (asyncCreatedView != null && asyncCreatedView.getContext() != parent.getContext()) {
+                    asyncCreatedView = null;
+                }
+            }
+
+            View recycledView;
+            if (asyncCreatedView != null) {
+                view = asyncCreatedView;
+            } else if ((recycledView = obtainRecycledView(parent)) != null) {
+                view = recycledView;
+            } else {
+                boolean traced = Tracing.begin("onCreateView", getClass());
+                try {
+                    view = onCreateView(LayoutInflater.from(parent.getContext()), parent);
+                } finally {
+                    Tracing.end(traced);
+                }
+            }
+
+            if (retainViewMode == RetainViewMode.RECYCLE && pristineHierarchyState == null) {
+                pristineHierarchyState = new SparseArray<>();
+                view.saveHierarchyState(pristineHierarchyState);
             }
 
-            view = onCreateView(LayoutInflater.from(parent.getContext()), parent);
             if (view == parent) {
                 throw new IllegalStateException("Controller's onCreateView method returned the parent ViewGroup. Perhaps you forgot to pass false for LayoutInflater.inflate's attachToRoot parameter?");
             }
 
-            listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
+            for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_POST_CREATE_VIEW)) {
                 lifecycleListener.postCreateView(this, view);
             }
 
-            restoreViewState(view);
+            boolean traced = Tracing.begin("restoreViewState", getClass());
+            try {
+                restoreViewState(view);
+            } finally {
+                Tracing.end(traced);
+            }
+
+            if (inflationStartNanos != 0) {
+                Class<?> changeHandlerClass = inProgressChange != null ? inProgressChange.changeHandler.getClass() : null;
+                NavigationMetrics.record(NavigationMetrics.Metric.INFLATE, getClass(), changeHandlerClass, System.nanoTime() - inflationStartNanos);
+            }
 
             viewAttachHandler = new ViewAttachHandler(new ViewAttachListener() {
                 @Override
@@ -965,13 +1219,33 @@ public abstract class Controller {
                 }
             });
             viewAttachHandler.listenForAttach(view);
-        } else if (retainViewMode == RetainViewMode.RETAIN_DETACH) {
+        } else {
             restoreChildControllerHosts();
         }
 
         return view;
     }
 
+    final boolean canCreateViewAsyncNow() {
+        return view == null && asyncViewCreation == null && !isBeingDestroyed && canCreateViewAsync();
+    }
+
+    final void prepareForAsyncViewCreation(@NonNull AsyncViewCreation creation) {
+        for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_PRE_CREATE_VIEW)) {
+            lifecycleListener.preCreateView(this);
+        }
+        asyncViewCreation = creation;
+    }
+
+    @NonNull
+    final View createViewAsync(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+        return onCreateView(inflater, container);
+    }
+
+    final void cancelAsyncViewCreation() {
+        asyncViewCreation = null;
+    }
+
     private void restoreChildControllerHosts() {
         for (ControllerHostedRouter childRouter : childRouters) {
             if (!childRouter.hasHost()) {
@@ -987,19 +1261,21 @@ public abstract class Controller {
 
     private void performDestroy() {
         if (!destroyed) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
+            for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_PRE_DESTROY)) {
                 lifecycleListener.preDestroy(this);
             }
 
             destroyed = true;
 
+            if (router != null) {
+                router.cancelPostAfterChange(this);
+            }
+
             onDestroy();
 
             parentController = null;
 
-            listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
+            for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_POST_DESTROY)) {
                 lifecycleListener.postDestroy(this);
             }
         }
@@ -1009,15 +1285,24 @@ public abstract class Controller {
         destroy(false);
     }
 
+    /**
+     * Destroys this instance after its state has been saved to recreate it later. Activity result registrations of
+     * it and the controllers of its child Routers are kept for the recreated instances.
+     */
+    final void destroyKeepingState() {
+        keepsStateOnDestroy = true;
+        destroy(false);
+    }
+
     private void destroy(boolean removeViews) {
         isBeingDestroyed = true;
 
-        if (router != null) {
-            router.unregisterForActivityResults(instanceId);
+        if (router != null && !keepsStateOnDestroy) {
+            router.unregisterForActivityResults(getInstanceId());
         }
 
         for (ControllerHostedRouter childRouter : childRouters) {
-            childRouter.destroy(false);
+            childRouter.destroy(false, keepsStateOnDestroy);
         }
 
         if (!attached) {
@@ -1027,6 +1312,38 @@ public abstract class Controller {
         }
     }
 
+    @Nullable
+    private View obtainRecycledView(@NonNull ViewGroup parent) {
+        if (retainViewMode != RetainViewMode.RECYCLE || router == null) {
+            return null;
+        }
+
+        RecycledViewPool.RecycledView recycledView = router.obtainRecycledView(this, parent);
+        if (recycledView == null) {
+            return null;
+        }
+
+        // The view still holds the hierarchy state of the Controller that released it, such as scroll positions or
+        // checked states. Saved view state of this Controller overwrites it anyway once it is restored.
+        if (viewState == null) {
+            recycledView.view.restoreHierarchyState(recycledView.pristineHierarchyState);
+        }
+
+        boolean rebound;
+        boolean traced = Tracing.begin("onRebindView", getClass());
+        try {
+            rebound = onRebindView(recycledView.view);
+        } finally {
+            Tracing.end(traced);
+        }
+
+        if (!rebound) {
+            return null;
+        }
+        pristineHierarchyState = recycledView.pristineHierarchyState;
+        return recycledView.view;
+    }
+
     private void saveViewState(@NonNull View view) {
         hasSavedViewState = true;
 
@@ -1040,8 +1357,7 @@ public abstract class Controller {
         onSaveViewState(view, stateBundle);
         viewState.putBundle(KEY_VIEW_STATE_BUNDLE, stateBundle);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-        for (LifecycleListener lifecycleListener : listeners) {
+        for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_SAVE_VIEW_STATE)) {
             lifecycleListener.onSaveViewState(this, viewState);
         }
     }
@@ -1055,14 +1371,22 @@ public abstract class Controller {
 
             restoreChildControllerHosts();
 
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
+            for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_RESTORE_VIEW_STATE)) {
                 lifecycleListener.onRestoreViewState(this, viewState);
             }
         }
     }
 
     final Bundle saveInstanceState() {
+        boolean traced = Tracing.begin("saveInstanceState", getClass());
+        try {
+            return performSaveInstanceState();
+        } finally {
+            Tracing.end(traced);
+        }
+    }
+
+    private Bundle performSaveInstanceState() {
         if (!hasSavedViewState && view != null) {
             saveViewState(view);
         }
@@ -1071,7 +1395,7 @@ public abstract class Controller {
         outState.putString(KEY_CLASS_NAME, getClass().getName());
         outState.putBundle(KEY_VIEW_STATE, viewState);
         outState.putBundle(KEY_ARGS, args);
-        outState.putString(KEY_INSTANCE_ID, instanceId);
+        outState.putString(KEY_INSTANCE_ID, getInstanceId());
         outState.putString(KEY_TARGET_INSTANCE_ID, targetInstanceId);
         outState.putStringArrayList(KEY_REQUESTED_PERMISSIONS, requestedPermissions);
         outState.putBoolean(KEY_NEEDS_ATTACH, needsAttach || attached);
@@ -1095,13 +1419,11 @@ public abstract class Controller {
         Bundle savedState = new Bundle(getClass().getClassLoader());
         onSaveInstanceState(savedState);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-        for (LifecycleListener lifecycleListener : listeners) {
+        for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_SAVE_INSTANCE_STATE)) {
             lifecycleListener.onSaveInstanceState(this, savedState);
         }
 
         outState.putBundle(KEY_SAVED_STATE, savedState);
-
         return outState;
     }
 
@@ -1137,8 +1459,7 @@ public abstract class Controller {
         if (savedInstanceState != null && router != null) {
             onRestoreInstanceState(savedInstanceState);
 
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
+            for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_RESTORE_INSTANCE_STATE)) {
                 lifecycleListener.onRestoreInstanceState(this, savedInstanceState);
             }
 
@@ -1156,8 +1477,7 @@ public abstract class Controller {
 
         onChangeStarted(changeHandler, changeType);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-        for (LifecycleListener lifecycleListener : listeners) {
+        for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_CHANGE_START)) {
             lifecycleListener.onChangeStart(this, changeHandler, changeType);
         }
     }
@@ -1172,8 +1492,7 @@ public abstract class Controller {
 
         onChangeEnded(changeHandler, changeType);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-        for (LifecycleListener lifecycleListener : listeners) {
+        for (LifecycleListener lifecycleListener : lifecycleListeners.forEvent(LifecycleListener.EVENT_CHANGE_END)) {
             lifecycleListener.onChangeEnd(this, changeHandler, changeType);
         }
 
@@ -1221,30 +1540,23 @@ public abstract class Controller {
     }
 
     private void ensureRequiredConstructor() {
-        Constructor[] constructors = getClass().getConstructors();
-        if (getBundleConstructor(constructors) == null && getDefaultConstructor(constructors) == null) {
+        Class<? extends Controller> cls = getClass();
+        if (ClassUtils.getSingleArgumentConstructor(cls, Bundle.class) == null && ClassUtils.getDefaultConstructor(cls) == null) {
             throw new RuntimeException(getClass() + " does not have a constructor that takes a Bundle argument or a default constructor. Controllers must have one of these in order to restore their states.");
         }
     }
 
-    @Nullable
-    private static Constructor getDefaultConstructor(@NonNull Constructor[] constructors) {
-        for (Constructor constructor : constructors) {
-            if (constructor.getParameterTypes().length == 0) {
-                return constructor;
-            }
-        }
-        return null;
-    }
-
-    @Nullable
-    private static Constructor getBundleConstructor(@NonNull Constructor[] constructors) {
-        for (Constructor constructor : constructors) {
-            if (constructor.getParameterTypes().length == 1 && constructor.getParameterTypes()[0] == Bundle.class) {
-                return constructor;
-            }
-        }
-        return null;
+    /** Actions Conductor may take on a Controller that isn't visible when the system is low on memory */
+    public enum TrimMemoryAction {
+        /** Releasing the view the Controller holds on to while detached. */
+        RELEASE_VIEW,
+        /**
+         * Dropping the saved view state of a Controller deep in the backstack, along with any state that
+         * {@link LifecycleListener}s such as pager adapters keep on its behalf.
+         */
+        DROP_SAVED_STATE,
+        /** Saving the Controller to a Bundle and releasing the instance until it is needed again. */
+        HIBERNATE
     }
 
     /** Modes that will influence when the Controller will allow its view to be destroyed */
@@ -1252,12 +1564,49 @@ public abstract class Controller {
         /** The Controller will release its reference to its view as soon as it is detached. */
         RELEASE_DETACH,
         /** The Controller will retain its reference to its view when detached, but will still release the reference when a config change occurs. */
-        RETAIN_DETACH
+        RETAIN_DETACH,
+        /**
+         * The Controller will release its reference to its view as soon as it is detached, after which the view is kept
+         * by its Router to be passed to {@link #onRebindView(View)} of the next Controller of the same class instead of
+         * creating a new one. Views are only reused by Controllers that override {@link #onRebindView(View)}. Pooled
+         * views may still hold references to the destroyed Controller that used them last (ex: through click listeners
+         * set on them), which are only dropped once they are rebound or the pool is cleared.
+         */
+        RECYCLE
     }
 
     /** Allows external classes to listen for lifecycle events in a Controller */
     public static abstract class LifecycleListener {
 
+        public static final int EVENT_CHANGE_START = 1 << 0;
+        public static final int EVENT_CHANGE_END = 1 << 1;
+        public static final int EVENT_PRE_CREATE_VIEW = 1 << 2;
+        public static final int EVENT_POST_CREATE_VIEW = 1 << 3;
+        public static final int EVENT_PRE_ATTACH = 1 << 4;
+        public static final int EVENT_POST_ATTACH = 1 << 5;
+        public static final int EVENT_PRE_DETACH = 1 << 6;
+        public static final int EVENT_POST_DETACH = 1 << 7;
+        public static final int EVENT_PRE_DESTROY_VIEW = 1 << 8;
+        public static final int EVENT_POST_DESTROY_VIEW = 1 << 9;
+        public static final int EVENT_PRE_DESTROY = 1 << 10;
+        public static final int EVENT_POST_DESTROY = 1 << 11;
+        public static final int EVENT_SAVE_INSTANCE_STATE = 1 << 12;
+        public static final int EVENT_RESTORE_INSTANCE_STATE = 1 << 13;
+        public static final int EVENT_SAVE_VIEW_STATE = 1 << 14;
+        public static final int EVENT_RESTORE_VIEW_STATE = 1 << 15;
+        public static final int EVENT_TRIM_MEMORY = 1 << 16;
+        public static final int EVENT_ALL = (1 << 17) - 1;
+
+        /**
+         * Returns the events this listener should be notified of as a combination of the {@code EVENT_*} flags.
+         * Defaults to all of them. Overriding this to only include the callbacks that are actually implemented
+         * avoids calls to the others. The returned value is read when the listener is added and must not change
+         * while it is registered.
+         */
+        public int getSubscribedEvents() {
+            return EVENT_ALL;
+        }
+
         public void onChangeStart(@NonNull Controller controller, @NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeType changeType) { }
         public void onChangeEnd(@NonNull Controller controller, @NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeType changeType) { }
 
@@ -1282,6 +1631,12 @@ public abstract class Controller {
         public void onSaveViewState(@NonNull Controller controller, @NonNull Bundle outState) { }
         public void onRestoreViewState(@NonNull Controller controller, @NonNull Bundle savedViewState) { }
 
+        /**
+         * Called when the system is low on memory and the Controller allowed its saved state to be dropped. Listeners
+         * keeping state on behalf of the Controller should drop as much of it as they can.
+         */
+        public void onTrimMemory(@NonNull Controller controller, int level) { }
+
     }
 
 }
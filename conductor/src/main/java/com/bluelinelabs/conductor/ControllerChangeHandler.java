@@ -9,10 +9,9 @@ import android.view.ViewParent;
 
 import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
 import com.bluelinelabs.conductor.internal.ClassUtils;
+import com.bluelinelabs.conductor.internal.FactoryRegistry;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * ControllerChangeHandlers are responsible for swapping the View for one Controller to the View
@@ -24,10 +23,9 @@ public abstract class ControllerChangeHandler {
     private static final String KEY_CLASS_NAME = "ControllerChangeHandler.className";
     private static final String KEY_SAVED_STATE = "ControllerChangeHandler.savedState";
 
-    private static final Map<String, ChangeHandlerData> inProgressChangeHandlers = new HashMap<>();
-
     private boolean forceRemoveViewOnPush;
     private boolean hasBeenUsed;
+    private Bundle internedBundle;
 
     /**
      * Responsible for swapping Views from one Controller to another.
@@ -81,7 +79,7 @@ public abstract class ControllerChangeHandler {
      */
     @NonNull
     public ControllerChangeHandler copy() {
-        return fromBundle(toBundle());
+        return newInstance(toBundle());
     }
 
     /**
@@ -94,8 +92,45 @@ public abstract class ControllerChangeHandler {
         return false;
     }
 
+    /**
+     * Returns whether or not copies of this ControllerChangeHandler can be recycled once a change using them has
+     * completed, rather than creating a new copy for every change. Defaults to false and should ONLY be overridden
+     * if {@link #resetFrom(ControllerChangeHandler)} resets every field of this handler. As subclasses may add state
+     * that resetFrom doesn't know about, implementations should only return true for their own class. Recycled
+     * handlers must not be retained by {@link ControllerChangeListener}s or Controllers after the change has completed.
+     */
+    public boolean isRecyclable() {
+        return false;
+    }
+
+    /**
+     * Called on a recycled handler to turn it into an exact copy of the passed handler, which is always of the same
+     * class, before it is used again. Must be overridden by handlers that return true from {@link #isRecyclable()}.
+     *
+     * @param handler The handler this one is replacing a {@link #copy()} of
+     */
+    protected void resetFrom(@NonNull ControllerChangeHandler handler) { }
+
+    /**
+     * Returns whether this handler was restored through {@link #fromBundle(Bundle)} and may be shared between
+     * transactions.
+     */
+    final boolean isShared() {
+        return internedBundle != null;
+    }
+
+    final void recycleFrom(@NonNull ControllerChangeHandler handler) {
+        hasBeenUsed = false;
+        forceRemoveViewOnPush = false;
+        resetFrom(handler);
+    }
+
     @NonNull
     final Bundle toBundle() {
+        if (internedBundle != null) {
+            return internedBundle;
+        }
+
         Bundle bundle = new Bundle();
         bundle.putString(KEY_CLASS_NAME, getClass().getName());
 
@@ -107,75 +142,113 @@ public abstract class ControllerChangeHandler {
     }
 
     private void ensureDefaultConstructor() {
-        try {
-            getClass().getConstructor();
-        } catch (Exception e) {
+        if (ClassUtils.getDefaultConstructor(getClass()) == null) {
             throw new RuntimeException(getClass() + " does not have a default constructor.");
         }
     }
 
+    /**
+     * Restores a ControllerChangeHandler saved by a {@link RouterTransaction}. Recyclable handlers restored from
+     * identical state are shared, as their state is fully known and they are only ever used through a copy. Shared
+     * handlers must not be modified; modify a {@link #copy()} of them instead.
+     */
     @Nullable
     public static ControllerChangeHandler fromBundle(@Nullable Bundle bundle) {
         if (bundle != null) {
             String className = bundle.getString(KEY_CLASS_NAME);
-            ControllerChangeHandler changeHandler = ClassUtils.newInstance(className);
+            Bundle savedState = bundle.getBundle(KEY_SAVED_STATE);
+
             //noinspection ConstantConditions
-            changeHandler.restoreFromBundle(bundle.getBundle(KEY_SAVED_STATE));
+            String internKey = ChangeHandlerPool.internKey(className, savedState);
+            if (internKey != null) {
+                ControllerChangeHandler changeHandler = ChangeHandlerPool.getInterned(internKey);
+                if (changeHandler != null) {
+                    return changeHandler;
+                }
+            }
+
+            ControllerChangeHandler changeHandler = newInstance(bundle);
+            if (internKey != null && !changeHandler.isReusable() && changeHandler.isRecyclable()) {
+                // Shared handlers must never run a change themselves, so they are marked as used up front
+                changeHandler.hasBeenUsed = true;
+                changeHandler.internedBundle = bundle;
+                ChangeHandlerPool.intern(internKey, changeHandler);
+            }
             return changeHandler;
         } else {
             return null;
         }
     }
 
-    static boolean completeHandlerImmediately(@NonNull String controllerInstanceId) {
-        ChangeHandlerData changeHandlerData = inProgressChangeHandlers.get(controllerInstanceId);
+    @NonNull
+    private static ControllerChangeHandler newInstance(@NonNull Bundle bundle) {
+        ControllerChangeHandler changeHandler = FactoryRegistry.createChangeHandler(bundle.getString(KEY_CLASS_NAME));
+        //noinspection ConstantConditions
+        changeHandler.restoreFromBundle(bundle.getBundle(KEY_SAVED_STATE));
+        return changeHandler;
+    }
+
+    static boolean completeHandlerImmediately(@NonNull Controller controller) {
+        ChangeHandlerData changeHandlerData = controller.inProgressChange;
         if (changeHandlerData != null) {
+            controller.inProgressChange = null;
             changeHandlerData.changeHandler.completeImmediately();
-            inProgressChangeHandlers.remove(controllerInstanceId);
             return true;
         }
         return false;
     }
 
     static void abortOrComplete(@NonNull Controller toAbort, @Nullable Controller newController, @NonNull ControllerChangeHandler newChangeHandler) {
-        ChangeHandlerData changeHandlerData = inProgressChangeHandlers.get(toAbort.getInstanceId());
+        ChangeHandlerData changeHandlerData = toAbort.inProgressChange;
         if (changeHandlerData != null) {
+            toAbort.inProgressChange = null;
             if (changeHandlerData.isPush) {
                 changeHandlerData.changeHandler.onAbortPush(newChangeHandler, newController);
             } else {
                 changeHandlerData.changeHandler.completeImmediately();
             }
-
-            inProgressChangeHandlers.remove(toAbort.getInstanceId());
         }
     }
 
     static void executeChange(@NonNull final ChangeTransaction transaction) {
-        executeChange(transaction.to, transaction.from, transaction.isPush, transaction.container, transaction.changeHandler, transaction.listeners);
+        executeChange(transaction.to, transaction.from, transaction.isPush, transaction.container, transaction.changeHandler, transaction.listeners, transaction.navigationStartNanos);
     }
 
-    private static void executeChange(@Nullable final Controller to, @Nullable final Controller from, final boolean isPush, @Nullable final ViewGroup container, @Nullable final ControllerChangeHandler inHandler, @NonNull final List<ControllerChangeListener> listeners) {
+    private static void executeChange(@Nullable final Controller to, @Nullable final Controller from, final boolean isPush, @Nullable final ViewGroup container, @Nullable final ControllerChangeHandler inHandler, @NonNull final List<ControllerChangeListener> listeners, final long navigationStartNanos) {
         if (container != null) {
             final ControllerChangeHandler handler;
             if (inHandler == null) {
                 handler = new SimpleSwapChangeHandler();
             } else if (inHandler.hasBeenUsed && !inHandler.isReusable()) {
-                handler = inHandler.copy();
+                handler = ChangeHandlerPool.copyOf(inHandler);
             } else {
                 handler = inHandler;
             }
             handler.hasBeenUsed = true;
 
+            // Lets work posted to run after changes wait for this one
+            final Router router = to != null ? to.getRouter() : from != null ? from.getRouter() : null;
+            if (router != null) {
+                router.onChangeInProgressStarted();
+            }
+
             if (from != null) {
                 if (isPush) {
-                    completeHandlerImmediately(from.getInstanceId());
+                    completeHandlerImmediately(from);
                 } else {
                     abortOrComplete(from, to, handler);
                 }
             }
 
+            final ChangeHandlerData changeHandlerData = to != null ? new ChangeHandlerData(handler, isPush, navigationStartNanos) : null;
             if (to != null) {
-                inProgressChangeHandlers.put(to.getInstanceId(), new ChangeHandlerData(handler, isPush));
+                to.inProgressChange = changeHandlerData;
+            }
+
+            // Measurements are attributed to the Controller being changed to, or the one being removed if there is none
+            final Controller measuredController = navigationStartNanos != 0 ? (to != null ? to : from) : null;
+            if (measuredController != null) {
+                NavigationMetrics.record(NavigationMetrics.Metric.CHANGE_START, measuredController.getClass(), handler.getClass(), System.nanoTime() - navigationStartNanos);
             }
 
             for (ControllerChangeListener listener : listeners) {
@@ -201,7 +274,7 @@ public abstract class ControllerChangeHandler {
                 fromView = null;
             }
 
-            handler.performChange(container, fromView, toView, isPush, new ControllerChangeCompletedListener() {
+            ControllerChangeCompletedListener changeCompletedListener = new ControllerChangeCompletedListener() {
                 @Override
                 public void onChangeCompleted() {
                     if (from != null) {
@@ -209,7 +282,9 @@ public abstract class ControllerChangeHandler {
                     }
 
                     if (to != null) {
-                        inProgressChangeHandlers.remove(to.getInstanceId());
+                        if (to.inProgressChange == changeHandlerData) {
+                            to.inProgressChange = null;
+                        }
                         to.changeEnded(handler, toChangeType);
                     }
 
@@ -227,8 +302,27 @@ public abstract class ControllerChangeHandler {
                     if (handler.removesFromViewOnPush() && from != null) {
                         from.setNeedsAttach(false);
                     }
+
+                    if (measuredController != null) {
+                        NavigationMetrics.record(NavigationMetrics.Metric.CHANGE_END, measuredController.getClass(), handler.getClass(), System.nanoTime() - navigationStartNanos);
+                    }
+
+                    if (handler != inHandler) {
+                        ChangeHandlerPool.recycleAfterCompletion(handler);
+                    }
+
+                    if (router != null) {
+                        router.onChangeInProgressCompleted();
+                    }
                 }
-            });
+            };
+
+            boolean traced = Tracing.begin("performChange", handler.getClass());
+            try {
+                handler.performChange(container, fromView, toView, isPush, changeCompletedListener);
+            } finally {
+                Tracing.end(traced);
+            }
         }
     }
 
@@ -247,19 +341,23 @@ public abstract class ControllerChangeHandler {
         @Nullable final ViewGroup container;
         @Nullable final ControllerChangeHandler changeHandler;
         @NonNull final List<ControllerChangeListener> listeners;
+        final long navigationStartNanos;
 
-        public ChangeTransaction(@Nullable Controller to, @Nullable Controller from, boolean isPush, @Nullable ViewGroup container, @Nullable ControllerChangeHandler changeHandler, @NonNull List<ControllerChangeListener> listeners) {
+        public ChangeTransaction(@Nullable Controller to, @Nullable Controller from, boolean isPush, @Nullable ViewGroup container, @Nullable ControllerChangeHandler changeHandler, @NonNull List<ControllerChangeListener> listeners, long navigationStartNanos) {
             this.to = to;
             this.from = from;
             this.isPush = isPush;
             this.container = container;
             this.changeHandler = changeHandler;
             this.listeners = listeners;
+            this.navigationStartNanos = navigationStartNanos;
         }
     }
 
     /**
-     * A listener interface useful for allowing external classes to be notified of change events.
+     * A listener interface useful for allowing external classes to be notified of change events. The handler passed
+     * to these callbacks may be a copy that is reused for a later change once this one has completed, so listeners
+     * should not hold on to it beyond {@link #onChangeCompleted}.
      */
     public interface ControllerChangeListener {
         /**
@@ -296,13 +394,15 @@ public abstract class ControllerChangeHandler {
         void onChangeCompleted();
     }
 
-    private static class ChangeHandlerData {
+    static class ChangeHandlerData {
         public final ControllerChangeHandler changeHandler;
         public final boolean isPush;
+        public final long navigationStartNanos;
 
-        public ChangeHandlerData(ControllerChangeHandler changeHandler, boolean isPush) {
+        public ChangeHandlerData(ControllerChangeHandler changeHandler, boolean isPush, long navigationStartNanos) {
             this.changeHandler = changeHandler;
             this.isPush = isPush;
+            this.navigationStartNanos = navigationStartNanos;
         }
     }
 
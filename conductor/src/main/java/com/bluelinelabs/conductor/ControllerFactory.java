@@ -0,0 +1,23 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Creates {@link Controller}s by class name without reflection. Implementations are generated by the
+ * conductor-compiler annotation processor and registered through {@link Conductor#addControllerFactory(ControllerFactory)}.
+ */
+public interface ControllerFactory {
+
+    /**
+     * Returns a new instance of the Controller with the passed class name or {@code null} if this factory
+     * does not know how to create it.
+     *
+     * @param className The fully-qualified runtime name of the Controller's class
+     * @param args      The arguments the Controller was originally created with, if any
+     */
+    @Nullable
+    Controller createController(@NonNull String className, @Nullable Bundle args);
+
+}
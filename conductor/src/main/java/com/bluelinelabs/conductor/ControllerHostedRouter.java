@@ -46,7 +46,9 @@ class ControllerHostedRouter extends Router {
             this.container = container;
 
             for (RouterTransaction transaction : backstack) {
-                transaction.controller.setParentController(controller);
+                if (!transaction.isHibernated()) {
+                    transaction.controller.setParentController(controller);
+                }
             }
 
             watchContainerAttach();
@@ -65,7 +67,7 @@ class ControllerHostedRouter extends Router {
             }
         }
         for (RouterTransaction transaction : backstack) {
-            if (transaction.controller.getView() != null) {
+            if (!transaction.isHibernated() && transaction.controller.getView() != null) {
                 transaction.controller.detach(transaction.controller.getView(), true, false);
             }
         }
@@ -78,20 +80,22 @@ class ControllerHostedRouter extends Router {
     final void setDetachFrozen(boolean frozen) {
         isDetachFrozen = frozen;
         for (RouterTransaction transaction : backstack) {
-            transaction.controller.setDetachFrozen(frozen);
+            if (!transaction.isHibernated()) {
+                transaction.controller.setDetachFrozen(frozen);
+            }
         }
     }
 
     @Override
-    void destroy(boolean popViews) {
+    void destroy(boolean popViews, boolean keepState) {
         setDetachFrozen(false);
-        super.destroy(popViews);
+        super.destroy(popViews, keepState);
     }
 
     @Override
     protected void pushToBackstack(@NonNull RouterTransaction entry) {
         if (isDetachFrozen) {
-            entry.controller.setDetachFrozen(true);
+            entry.controller().setDetachFrozen(true);
         }
         super.pushToBackstack(entry);
     }
@@ -100,7 +104,9 @@ class ControllerHostedRouter extends Router {
     public void setBackstack(@NonNull List<RouterTransaction> newBackstack, @Nullable ControllerChangeHandler changeHandler) {
         if (isDetachFrozen) {
             for (RouterTransaction transaction : newBackstack) {
-                transaction.controller.setDetachFrozen(true);
+                if (!transaction.isHibernated()) {
+                    transaction.controller.setDetachFrozen(true);
+                }
             }
         }
         super.setBackstack(newBackstack, changeHandler);
@@ -208,6 +214,12 @@ class ControllerHostedRouter extends Router {
         controller.setParentController(hostController);
     }
 
+    @Override
+    void onTransactionRehydrated(@NonNull RouterTransaction transaction) {
+        super.onTransactionRehydrated(transaction);
+        transaction.controller.setDetachFrozen(isDetachFrozen);
+    }
+
     int getHostId() {
         return hostId;
     }
@@ -238,4 +250,11 @@ class ControllerHostedRouter extends Router {
     TransactionIndexer getTransactionIndexer() {
         return getRootRouter().getTransactionIndexer();
     }
+
+    @Override @Nullable
+    ChangeScheduler getChangeScheduler() {
+        // Without a host there is no root Router to share a scheduler with, so changes are executed right away
+        Router rootRouter = getRootRouter();
+        return rootRouter != this ? rootRouter.getChangeScheduler() : null;
+    }
 }
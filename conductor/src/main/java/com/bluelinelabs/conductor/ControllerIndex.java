@@ -0,0 +1,126 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A tree-wide index of every {@link Controller} living in the backstack of a root {@link Router} or any of
+ * its descendant child Routers. It is owned by the root Router and shared with each child Router as it
+ * becomes part of the tree, allowing instance ID lookups without walking the whole hierarchy.
+ */
+class ControllerIndex {
+
+    private final Map<String, Controller> controllersById = new HashMap<>();
+    private final Map<String, RouterTransaction> hibernatedById = new HashMap<>();
+
+    /**
+     * Returns the controller with the passed instance ID, recreating it and any hibernated parents first if needed.
+     */
+    @Nullable
+    Controller get(@NonNull String instanceId) {
+        Controller controller = controllersById.get(instanceId);
+        if (controller == null) {
+            RouterTransaction hibernatedTransaction = hibernatedById.get(instanceId);
+            if (hibernatedTransaction != null) {
+                // Rehydrating re-indexes the transaction's subtree, so a hibernated descendant is now one level closer
+                controller = hibernatedTransaction.controller();
+                if (!instanceId.equals(controller.getInstanceId())) {
+                    controller = get(instanceId);
+                }
+            }
+        }
+        return controller;
+    }
+
+    boolean contains(@NonNull Controller controller) {
+        return controllersById.get(controller.getInstanceId()) == controller;
+    }
+
+    int size() {
+        return controllersById.size() + hibernatedById.size();
+    }
+
+    /**
+     * Indexes the passed transaction's controller. If it is hibernated, the instance IDs of the controller and its
+     * saved child controllers are mapped to the transaction instead.
+     */
+    void add(@NonNull RouterTransaction transaction) {
+        if (transaction.isHibernated()) {
+            for (String instanceId : transaction.hibernatedInstanceIds()) {
+                hibernatedById.put(instanceId, transaction);
+            }
+        } else {
+            add(transaction.controller);
+        }
+    }
+
+    void remove(@NonNull RouterTransaction transaction) {
+        if (transaction.isHibernated()) {
+            for (String instanceId : transaction.hibernatedInstanceIds()) {
+                if (hibernatedById.get(instanceId) == transaction) {
+                    hibernatedById.remove(instanceId);
+                }
+            }
+        } else {
+            remove(transaction.controller);
+        }
+    }
+
+    /**
+     * Indexes the passed controller along with every controller in its child Routers.
+     */
+    void add(@NonNull Controller controller) {
+        if (contains(controller)) {
+            return;
+        }
+
+        controllersById.put(controller.getInstanceId(), controller);
+
+        for (ControllerHostedRouter childRouter : controller.childRouters) {
+            add(childRouter);
+        }
+    }
+
+    /**
+     * Indexes all controllers in the passed Router's backstack and links the Router to this index.
+     */
+    void add(@NonNull Router router) {
+        router.controllerIndex = this;
+
+        for (RouterTransaction transaction : router.backstack) {
+            add(transaction);
+        }
+    }
+
+    /**
+     * Removes the passed controller along with every controller in its child Routers.
+     */
+    void remove(@NonNull Controller controller) {
+        if (!contains(controller)) {
+            return;
+        }
+
+        controllersById.remove(controller.getInstanceId());
+
+        for (ControllerHostedRouter childRouter : controller.childRouters) {
+            remove(childRouter);
+        }
+    }
+
+    /**
+     * Removes all controllers in the passed Router's backstack and unlinks the Router from this index.
+     */
+    void remove(@NonNull Router router) {
+        if (router.controllerIndex == this) {
+            router.controllerIndex = null;
+        }
+
+        for (RouterTransaction transaction : router.backstack) {
+            remove(transaction);
+        }
+    }
+
+}
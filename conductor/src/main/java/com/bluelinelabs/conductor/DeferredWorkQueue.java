@@ -0,0 +1,96 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds work posted through {@link Router#postAfterChange} or {@link Controller#postAfterChange} until its
+ * {@link Router} has no changes in progress, then runs it one item per frame so that it never competes with a
+ * change handler's frames. Work with a higher priority runs first, work of equal priority in the order it was posted.
+ */
+final class DeferredWorkQueue implements Choreographer.FrameCallback {
+
+    private final Router router;
+    private final List<Work> pendingWork = new ArrayList<>();
+    private boolean frameCallbackPosted;
+
+    DeferredWorkQueue(@NonNull Router router) {
+        this.router = router;
+    }
+
+    void post(@NonNull Runnable runnable, int priority, @Nullable Controller owner) {
+        int index = pendingWork.size();
+        while (index > 0 && pendingWork.get(index - 1).priority < priority) {
+            index--;
+        }
+        pendingWork.add(index, new Work(runnable, priority, owner));
+
+        onChangesSettled();
+    }
+
+    void cancel(@NonNull Runnable runnable) {
+        for (int i = pendingWork.size() - 1; i >= 0; i--) {
+            if (pendingWork.get(i).runnable == runnable) {
+                pendingWork.remove(i);
+            }
+        }
+    }
+
+    void cancelAll(@NonNull Controller owner) {
+        for (int i = pendingWork.size() - 1; i >= 0; i--) {
+            if (pendingWork.get(i).owner == owner) {
+                pendingWork.remove(i);
+            }
+        }
+    }
+
+    void cancelAll() {
+        pendingWork.clear();
+
+        if (frameCallbackPosted) {
+            frameCallbackPosted = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    /**
+     * Called whenever the Router may have become idle, which schedules the next piece of work if there is any.
+     */
+    void onChangesSettled() {
+        if (!frameCallbackPosted && !pendingWork.isEmpty() && !router.hasChangesInProgress()) {
+            frameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameCallbackPosted = false;
+
+        // A change started since this frame was scheduled will schedule the work again once it has completed
+        if (pendingWork.isEmpty() || router.hasChangesInProgress()) {
+            return;
+        }
+
+        pendingWork.remove(0).runnable.run();
+
+        onChangesSettled();
+    }
+
+    private static class Work {
+        @NonNull final Runnable runnable;
+        final int priority;
+        @Nullable final Controller owner;
+
+        Work(@NonNull Runnable runnable, int priority, @Nullable Controller owner) {
+            this.runnable = runnable;
+            this.priority = priority;
+            this.owner = owner;
+        }
+    }
+
+}
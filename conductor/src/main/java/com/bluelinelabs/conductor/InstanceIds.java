@@ -0,0 +1,33 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates {@link Controller} instance IDs from a per-process epoch and a counter. This is much cheaper than
+ * creating random UUIDs, while the epoch keeps new IDs from colliding with ones restored from a previous process.
+ */
+final class InstanceIds {
+
+    private static final AtomicLong sequence = new AtomicLong();
+
+    // Milliseconds since the Unix epoch with a random salt in the low bits, in case the clock has been moved back
+    private static final String prefix = Long.toString((System.currentTimeMillis() << 16) | (new Random().nextInt() & 0xFFFF), Character.MAX_RADIX) + '-';
+
+    private InstanceIds() { }
+
+    /**
+     * Returns a new ID that can be turned into its String form with {@link #format(long)} once it's needed.
+     */
+    static long next() {
+        return sequence.incrementAndGet();
+    }
+
+    @NonNull
+    static String format(long id) {
+        return prefix + Long.toString(id, Character.MAX_RADIX);
+    }
+
+}
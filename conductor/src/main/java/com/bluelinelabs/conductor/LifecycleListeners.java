@@ -0,0 +1,79 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+
+import com.bluelinelabs.conductor.Controller.LifecycleListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copy-on-write registry of a {@link Controller}'s {@link LifecycleListener}s. Listeners are grouped by the events
+ * they subscribe to whenever the registry changes, so dispatching an event neither allocates nor calls listeners
+ * that aren't interested in it. Arrays handed out by {@link #forEvent(int)} are never modified, which makes it safe
+ * for listeners to add or remove listeners while an event is being dispatched.
+ */
+final class LifecycleListeners {
+
+    private static final LifecycleListener[] EMPTY = new LifecycleListener[0];
+    private static final int EVENT_COUNT = Integer.bitCount(LifecycleListener.EVENT_ALL);
+
+    private final List<LifecycleListener> listeners = new ArrayList<>();
+    private LifecycleListener[][] listenersByEvent;
+
+    void add(@NonNull LifecycleListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+            rebuild();
+        }
+    }
+
+    void remove(@NonNull LifecycleListener listener) {
+        if (listeners.remove(listener)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Returns the listeners subscribed to the passed event, which must be a single {@code LifecycleListener.EVENT_*}
+     * constant.
+     */
+    @NonNull
+    LifecycleListener[] forEvent(int event) {
+        return listenersByEvent != null ? listenersByEvent[Integer.numberOfTrailingZeros(event)] : EMPTY;
+    }
+
+    private void rebuild() {
+        if (listeners.isEmpty()) {
+            listenersByEvent = null;
+            return;
+        }
+
+        int[] subscribedEvents = new int[listeners.size()];
+        for (int i = 0; i < subscribedEvents.length; i++) {
+            subscribedEvents[i] = listeners.get(i).getSubscribedEvents();
+        }
+
+        LifecycleListener[][] listenersByEvent = new LifecycleListener[EVENT_COUNT][];
+        for (int eventIndex = 0; eventIndex < EVENT_COUNT; eventIndex++) {
+            int event = 1 << eventIndex;
+
+            int count = 0;
+            for (int events : subscribedEvents) {
+                if ((events & event) != 0) {
+                    count++;
+                }
+            }
+
+            LifecycleListener[] eventListeners = count > 0 ? new LifecycleListener[count] : EMPTY;
+            for (int i = 0, j = 0; j < count; i++) {
+                if ((subscribedEvents[i] & event) != 0) {
+                    eventListeners[j++] = listeners.get(i);
+                }
+            }
+            listenersByEvent[eventIndex] = eventListeners;
+        }
+        this.listenersByEvent = listenersByEvent;
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects navigation latency histograms for every {@link Router} in the process. Once enabled, each push, pop,
+ * replace or {@link Router#setBackstack} records the time from the Router call until the change starts, until the
+ * new {@link Controller} is attached and until the change has ended. View inflation inside Controllers is recorded
+ * as well. Measurements are aggregated into fixed-bucket histograms keyed by Controller class and
+ * {@link ControllerChangeHandler} class, which can be exported at any time through {@link #snapshot()}.
+ */
+public final class NavigationMetrics {
+
+    public enum Metric {
+        /** Time from the Router call until the change handler starts the change. */
+        CHANGE_START,
+        /** Time from the Router call until the Controller being changed to is attached. */
+        ATTACH,
+        /** Time from the Router call until the change handler has completed the change. */
+        CHANGE_END,
+        /** Time spent creating and restoring a Controller's view. */
+        INFLATE
+    }
+
+    private static final Metric[] METRICS = Metric.values();
+    private static final long[] BUCKET_UPPER_BOUNDS_MILLIS = { 1, 2, 4, 8, 16, 33, 50, 100, 250, 500, 1000, Long.MAX_VALUE };
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    // Stands in for the change handler class of measurements that aren't associated with one
+    private static final Class<?> NO_CHANGE_HANDLER = NavigationMetrics.class;
+
+    private static volatile boolean enabled;
+
+    // Controller class -> change handler class -> one histogram per metric
+    private static final Map<Class<?>, Map<Class<?>, Histogram[]>> histograms = new HashMap<>();
+
+    private NavigationMetrics() { }
+
+    /**
+     * Sets whether or not navigation metrics should be recorded. Defaults to false. Recording costs one
+     * {@link System#nanoTime()} call per measurement point and allocates nothing once a histogram exists.
+     */
+    public static void setEnabled(boolean enabled) {
+        NavigationMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the upper bound, in milliseconds, of each histogram bucket. The last bucket is unbounded.
+     */
+    @NonNull
+    public static long[] getBucketUpperBoundsMillis() {
+        return BUCKET_UPPER_BOUNDS_MILLIS.clone();
+    }
+
+    /**
+     * Returns a copy of all histograms recorded so far.
+     */
+    @NonNull
+    public static synchronized List<HistogramSnapshot> snapshot() {
+        List<HistogramSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<Class<?>, Map<Class<?>, Histogram[]>> controllerEntry : histograms.entrySet()) {
+            for (Map.Entry<Class<?>, Histogram[]> handlerEntry : controllerEntry.getValue().entrySet()) {
+                String changeHandlerClassName = handlerEntry.getKey() != NO_CHANGE_HANDLER ? handlerEntry.getKey().getName() : null;
+                for (Metric metric : METRICS) {
+                    Histogram histogram = handlerEntry.getValue()[metric.ordinal()];
+                    if (histogram != null) {
+                        snapshots.add(new HistogramSnapshot(metric, controllerEntry.getKey().getName(), changeHandlerClassName, histogram));
+                    }
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Discards all histograms recorded so far.
+     */
+    public static synchronized void reset() {
+        histograms.clear();
+    }
+
+    static synchronized void record(@NonNull Metric metric, @NonNull Class<?> controllerClass, @Nullable Class<?> changeHandlerClass, long durationNanos) {
+        if (changeHandlerClass == null) {
+            changeHandlerClass = NO_CHANGE_HANDLER;
+        }
+
+        Map<Class<?>, Histogram[]> controllerHistograms = histograms.get(controllerClass);
+        if (controllerHistograms == null) {
+            controllerHistograms = new HashMap<>();
+            histograms.put(controllerClass, controllerHistograms);
+        }
+
+        Histogram[] handlerHistograms = controllerHistograms.get(changeHandlerClass);
+        if (handlerHistograms == null) {
+            handlerHistograms = new Histogram[METRICS.length];
+            controllerHistograms.put(changeHandlerClass, handlerHistograms);
+        }
+
+        Histogram histogram = handlerHistograms[metric.ordinal()];
+        if (histogram == null) {
+            histogram = new Histogram();
+            handlerHistograms[metric.ordinal()] = histogram;
+        }
+        histogram.record(durationNanos);
+    }
+
+    private static class Histogram {
+        final long[] bucketCounts = new long[BUCKET_UPPER_BOUNDS_MILLIS.length];
+        long count;
+        long totalNanos;
+        long maxNanos;
+
+        void record(long durationNanos) {
+            long durationMillis = durationNanos / NANOS_PER_MILLI;
+            int bucket = 0;
+            while (durationMillis >= BUCKET_UPPER_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+
+            bucketCounts[bucket]++;
+            count++;
+            totalNanos += durationNanos;
+            maxNanos = Math.max(maxNanos, durationNanos);
+        }
+    }
+
+    /**
+     * An immutable copy of a single histogram.
+     */
+    public static final class HistogramSnapshot {
+
+        @NonNull private final Metric metric;
+        @NonNull private final String controllerClassName;
+        @Nullable private final String changeHandlerClassName;
+        @NonNull private final long[] bucketCounts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        HistogramSnapshot(@NonNull Metric metric, @NonNull String controllerClassName, @Nullable String changeHandlerClassName, @NonNull Histogram histogram) {
+            this.metric = metric;
+            this.controllerClassName = controllerClassName;
+            this.changeHandlerClassName = changeHandlerClassName;
+            bucketCounts = histogram.bucketCounts.clone();
+            count = histogram.count;
+            totalNanos = histogram.totalNanos;
+            maxNanos = histogram.maxNanos;
+        }
+
+        @NonNull
+        public Metric getMetric() {
+            return metric;
+        }
+
+        @NonNull
+        public String getControllerClassName() {
+            return controllerClassName;
+        }
+
+        /**
+         * Returns the class name of the change handler these measurements were taken with, or {@code null} for
+         * inflations that happened outside of a change.
+         */
+        @Nullable
+        public String getChangeHandlerClassName() {
+            return changeHandlerClassName;
+        }
+
+        /**
+         * Returns the number of measurements in each bucket, matching {@link #getBucketUpperBoundsMillis()}.
+         */
+        @NonNull
+        public long[] getBucketCounts() {
+            return bucketCounts.clone();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+    }
+
+}
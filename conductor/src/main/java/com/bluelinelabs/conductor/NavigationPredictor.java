@@ -0,0 +1,420 @@
+package com.bluelinelabs.conductor;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.Controller.LifecycleListener;
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
+import com.bluelinelabs.conductor.internal.ClassUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Learns which {@link Controller} class usually follows which from the pushes it observes and, once a change has
+ * ended and the {@link Router} is idle, prepares the classes most likely to be pushed next. Their classes are always
+ * loaded ahead of time. Classes with a public default constructor are also instantiated, and their views inflated if
+ * they allow it through {@link Controller#canPrefetchView()}. The app takes such an instance through
+ * {@link #obtainPrefetched(Class)} instead of constructing a new one; instances that haven't been taken are discarded
+ * as soon as the next change starts.
+ * <p>
+ * A predictor is added to each Router that should be observed through {@link Router#addChangeListener}. The number of
+ * Controllers prefetched at once is capped by the device's memory class, so low-memory devices never prefetch at all.
+ * What has been learned can be persisted through {@link #toByteArray()} and restored through
+ * {@link #NavigationPredictor(byte[])}.
+ */
+public final class NavigationPredictor implements ControllerChangeListener {
+
+    private static final int VERSION = 1;
+    private static final int MAX_CLASSES = 64;
+    private static final int MAX_TARGETS_PER_CLASS = 4;
+    private static final int MAX_COUNT = Short.MAX_VALUE;
+    private static final int MIN_OBSERVATIONS = 3;
+    private static final int MIN_PERCENTAGE = 30;
+    private static final int MEMORY_CLASS_PER_PREFETCH = 96;
+    private static final int DEFAULT_MAX_PREFETCHED_CONTROLLERS = 2;
+
+    // Prefetching is only worth it if it doesn't delay any other work queued after changes
+    private static final int PREFETCH_PRIORITY = Integer.MIN_VALUE;
+
+    // Keyed by the class name changed from, least recently used first
+    private final Map<String, Transitions> transitions = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final List<Prefetch> prefetches = new ArrayList<>();
+    private final Set<String> failedClassNames = new HashSet<>();
+    private int maxPrefetchedControllers = DEFAULT_MAX_PREFETCHED_CONTROLLERS;
+    private int memoryClassBudget = -1;
+    private Router prefetchRouter;
+    private Runnable pendingPrefetch;
+
+    public NavigationPredictor() { }
+
+    /**
+     * Creates a predictor that continues from transitions previously returned by {@link #toByteArray()}. Data that
+     * can't be read is ignored.
+     */
+    public NavigationPredictor(@NonNull byte[] savedTransitions) {
+        try {
+            read(savedTransitions);
+        } catch (IOException | RuntimeException e) {
+            transitions.clear();
+        }
+    }
+
+    /**
+     * Sets the maximum number of Controllers prefetched after each change. The memory class of the device may lower
+     * this further. Defaults to 2.
+     */
+    public void setMaxPrefetchedControllers(int maxPrefetchedControllers) {
+        if (maxPrefetchedControllers < 0) {
+            throw new IllegalArgumentException("The maximum number of prefetched controllers can not be negative.");
+        }
+        this.maxPrefetchedControllers = maxPrefetchedControllers;
+    }
+
+    /**
+     * Returns the learned transitions in a compact binary form that can be passed to {@link #NavigationPredictor(byte[])}.
+     */
+    @NonNull
+    public synchronized byte[] toByteArray() {
+        List<String> classNames = new ArrayList<>();
+        Map<String, Integer> classIndices = new HashMap<>();
+        for (Map.Entry<String, Transitions> entry : transitions.entrySet()) {
+            indexOf(entry.getKey(), classNames, classIndices);
+            Transitions targets = entry.getValue();
+            for (int i = 0; i < targets.size; i++) {
+                indexOf(targets.classNames[i], classNames, classIndices);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(VERSION);
+            out.writeShort(classNames.size());
+            for (String className : classNames) {
+                out.writeUTF(className);
+            }
+
+            out.writeShort(transitions.size());
+            for (Map.Entry<String, Transitions> entry : transitions.entrySet()) {
+                Transitions targets = entry.getValue();
+                out.writeShort(classIndices.get(entry.getKey()));
+                out.writeByte(targets.size);
+                for (int i = 0; i < targets.size; i++) {
+                    out.writeShort(classIndices.get(targets.classNames[i]));
+                    out.writeShort(targets.counts[i]);
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Can't happen when writing to memory
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Forgets all learned transitions.
+     */
+    public synchronized void clear() {
+        transitions.clear();
+    }
+
+    /**
+     * Returns a transaction for the Controller of the passed class that was prefetched after the last change, or
+     * {@code null} if there is none. The Controller was created through its default constructor and, if
+     * {@link Controller#canPrefetchView()} allowed it, already has its view. The transaction can still be configured
+     * before it is pushed and will no longer be discarded by this predictor.
+     *
+     * @param controllerClass The class of the Controller about to be pushed
+     */
+    @Nullable @UiThread
+    public RouterTransaction obtainPrefetched(@NonNull Class<? extends Controller> controllerClass) {
+        for (int i = 0; i < prefetches.size(); i++) {
+            Prefetch prefetch = prefetches.get(i);
+            Controller controller = prefetch.transaction.controller;
+            if (controller.getClass() == controllerClass) {
+                prefetches.remove(i);
+                controller.removeLifecycleListener(prefetch);
+                return prefetch.transaction;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void onChangeStarted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) {
+        cancelPendingPrefetch();
+        discardPrefetches();
+    }
+
+    @Override
+    public void onChangeCompleted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) {
+        if (isPush && to != null && from != null) {
+            record(from.getClass().getName(), to.getClass().getName());
+        }
+
+        Router router = to != null ? to.getRouter() : null;
+        if (router != null && !to.isBeingDestroyed()) {
+            schedulePrefetch(router, to.getClass().getName());
+        }
+    }
+
+    synchronized void record(@NonNull String fromClassName, @NonNull String toClassName) {
+        Transitions targets = transitions.get(fromClassName);
+        if (targets == null) {
+            if (transitions.size() >= MAX_CLASSES) {
+                Iterator<String> iterator = transitions.keySet().iterator();
+                iterator.next();
+                iterator.remove();
+            }
+            targets = new Transitions();
+            transitions.put(fromClassName, targets);
+        }
+        targets.record(toClassName);
+    }
+
+    /**
+     * Returns the class names most likely to be pushed after the passed one, most likely first.
+     */
+    @NonNull
+    synchronized List<String> predict(@NonNull String fromClassName, int maxPredictions) {
+        List<String> predictions = new ArrayList<>();
+        Transitions targets = transitions.get(fromClassName);
+        if (targets == null) {
+            return predictions;
+        }
+
+        int total = targets.total();
+        boolean[] taken = new boolean[targets.size];
+        while (predictions.size() < maxPredictions) {
+            int best = -1;
+            for (int i = 0; i < targets.size; i++) {
+                if (!taken[i] && (best < 0 || targets.counts[i] > targets.counts[best])) {
+                    best = i;
+                }
+            }
+
+            if (best < 0 || targets.counts[best] < MIN_OBSERVATIONS || targets.counts[best] * 100 < total * MIN_PERCENTAGE) {
+                break;
+            }
+            taken[best] = true;
+            predictions.add(targets.classNames[best]);
+        }
+        return predictions;
+    }
+
+    @NonNull
+    List<Controller> getPrefetchedControllers() {
+        List<Controller> controllers = new ArrayList<>(prefetches.size());
+        for (Prefetch prefetch : prefetches) {
+            controllers.add(prefetch.transaction.controller);
+        }
+        return controllers;
+    }
+
+    private void schedulePrefetch(@NonNull final Router router, @NonNull final String fromClassName) {
+        cancelPendingPrefetch();
+
+        prefetchRouter = router;
+        pendingPrefetch = new Runnable() {
+            @Override
+            public void run() {
+                pendingPrefetch = null;
+                prefetchRouter = null;
+                prefetch(router, fromClassName);
+            }
+        };
+        router.postAfterChange(pendingPrefetch, PREFETCH_PRIORITY);
+    }
+
+    private void cancelPendingPrefetch() {
+        if (pendingPrefetch != null) {
+            prefetchRouter.cancelPostAfterChange(pendingPrefetch);
+            pendingPrefetch = null;
+            prefetchRouter = null;
+        }
+    }
+
+    private void prefetch(@NonNull Router router, @NonNull String fromClassName) {
+        int budget = Math.min(maxPrefetchedControllers, getMemoryClassBudget(router));
+        for (String className : predict(fromClassName, budget)) {
+            if (failedClassNames.contains(className)) {
+                continue;
+            }
+
+            Controller controller;
+            try {
+                // Loading the class is worth it on its own. Controllers that need args can't be created without them.
+                Class<? extends Controller> cls = ClassUtils.classForName(className, false);
+                //noinspection ConstantConditions
+                if (ClassUtils.getDefaultConstructor(cls) == null) {
+                    continue;
+                }
+                controller = ClassUtils.newInstance(className);
+            } catch (RuntimeException e) {
+                // Prefetching is only a hint, so Controllers that fail to be created are simply no longer prefetched
+                failedClassNames.add(className);
+                continue;
+            }
+
+            Prefetch prefetch = new Prefetch(router, RouterTransaction.with(controller));
+            prefetches.add(prefetch);
+
+            // Views are only prefetched into spare preload slots, so they never evict Controllers preloaded by the app
+            if (controller.canPrefetchView() && router.hasPreloadCapacity()) {
+                controller.addLifecycleListener(prefetch);
+                router.preload(prefetch.transaction);
+            }
+        }
+    }
+
+    private void discardPrefetches() {
+        for (int i = prefetches.size() - 1; i >= 0; i--) {
+            Prefetch prefetch = prefetches.remove(i);
+            prefetch.transaction.controller.removeLifecycleListener(prefetch);
+
+            // Controllers without a view were never handed to the Router and can simply be dropped
+            if (prefetch.transaction.controller.getView() != null) {
+                prefetch.router.discardPreload(prefetch.transaction);
+            }
+        }
+    }
+
+    private int getMemoryClassBudget(@NonNull Router router) {
+        if (memoryClassBudget < 0) {
+            Context context = router.getActivity();
+            if (context == null) {
+                return 0;
+            }
+
+            ActivityManager activityManager = (ActivityManager)context.getSystemService(Context.ACTIVITY_SERVICE);
+            if (activityManager == null || (Build.VERSION.SDK_INT >= 19 && activityManager.isLowRamDevice())) {
+                memoryClassBudget = 0;
+            } else {
+                memoryClassBudget = activityManager.getMemoryClass() / MEMORY_CLASS_PER_PREFETCH;
+            }
+        }
+        return memoryClassBudget;
+    }
+
+    private void read(@NonNull byte[] savedTransitions) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(savedTransitions));
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unknown version " + version);
+        }
+
+        String[] classNames = new String[in.readUnsignedShort()];
+        for (int i = 0; i < classNames.length; i++) {
+            classNames[i] = in.readUTF();
+        }
+
+        int transitionCount = in.readUnsignedShort();
+        for (int i = 0; i < transitionCount; i++) {
+            String fromClassName = classNames[in.readUnsignedShort()];
+            Transitions targets = new Transitions();
+            targets.size = Math.min(in.readUnsignedByte(), MAX_TARGETS_PER_CLASS);
+            for (int j = 0; j < targets.size; j++) {
+                targets.classNames[j] = classNames[in.readUnsignedShort()];
+                targets.counts[j] = in.readUnsignedShort();
+            }
+            transitions.put(fromClassName, targets);
+        }
+    }
+
+    private static void indexOf(@NonNull String className, @NonNull List<String> classNames, @NonNull Map<String, Integer> classIndices) {
+        if (!classIndices.containsKey(className)) {
+            classIndices.put(className, classNames.size());
+            classNames.add(className);
+        }
+    }
+
+    /** The classes pushed after a single class, along with how often each of them was. */
+    private static class Transitions {
+        final String[] classNames = new String[MAX_TARGETS_PER_CLASS];
+        final int[] counts = new int[MAX_TARGETS_PER_CLASS];
+        int size;
+
+        void record(@NonNull String className) {
+            int index = -1;
+            for (int i = 0; i < size; i++) {
+                if (classNames[i].equals(className)) {
+                    index = i;
+                    break;
+                }
+            }
+
+            if (index < 0) {
+                if (size < MAX_TARGETS_PER_CLASS) {
+                    index = size++;
+                } else {
+                    // Replace the least frequent target, which lets new habits take over
+                    index = 0;
+                    for (int i = 1; i < size; i++) {
+                        if (counts[i] < counts[index]) {
+                            index = i;
+                        }
+                    }
+                }
+                classNames[index] = className;
+                counts[index] = 0;
+            }
+
+            // Halve all counts once one saturates so that recent behavior keeps its weight
+            if (++counts[index] >= MAX_COUNT) {
+                for (int i = 0; i < size; i++) {
+                    counts[i] /= 2;
+                }
+            }
+        }
+
+        int total() {
+            int total = 0;
+            for (int i = 0; i < size; i++) {
+                total += counts[i];
+            }
+            return total;
+        }
+    }
+
+    private class Prefetch extends LifecycleListener {
+        @NonNull final Router router;
+        @NonNull final RouterTransaction transaction;
+
+        Prefetch(@NonNull Router router, @NonNull RouterTransaction transaction) {
+            this.router = router;
+            this.transaction = transaction;
+        }
+
+        @Override
+        public int getSubscribedEvents() {
+            return EVENT_POST_DESTROY;
+        }
+
+        @Override
+        public void postDestroy(@NonNull Controller controller) {
+            // The Router destroys its preloaded Controllers along with itself, after which they mustn't be held on to
+            controller.removeLifecycleListener(this);
+            prefetches.remove(this);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Holds the views released by a {@link Router}'s {@link Controller.RetainViewMode#RECYCLE} Controllers, keyed by
+ * Controller class, so that new instances of the same class can rebind them instead of inflating new ones.
+ */
+final class RecycledViewPool {
+
+    static final int DEFAULT_MAX_VIEWS_PER_CLASS = 2;
+
+    private final Map<Class<? extends Controller>, ArrayDeque<RecycledView>> pools = new HashMap<>();
+    private int maxViewsPerClass = DEFAULT_MAX_VIEWS_PER_CLASS;
+
+    void setMaxViewsPerClass(int maxViewsPerClass) {
+        this.maxViewsPerClass = maxViewsPerClass;
+
+        Iterator<ArrayDeque<RecycledView>> iterator = pools.values().iterator();
+        while (iterator.hasNext()) {
+            ArrayDeque<RecycledView> pool = iterator.next();
+            while (pool.size() > maxViewsPerClass) {
+                pool.removeLast();
+            }
+            if (pool.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @param pristineHierarchyState The hierarchy state of the view as it was created, before any Controller used it
+     */
+    void recycle(@NonNull Class<? extends Controller> controllerClass, @NonNull View view, @NonNull SparseArray<Parcelable> pristineHierarchyState) {
+        if (maxViewsPerClass == 0) {
+            return;
+        }
+
+        ArrayDeque<RecycledView> pool = pools.get(controllerClass);
+        if (pool == null) {
+            pool = new ArrayDeque<>(maxViewsPerClass);
+            pools.put(controllerClass, pool);
+        }
+        if (pool.size() >= maxViewsPerClass) {
+            return;
+        }
+        for (RecycledView recycledView : pool) {
+            if (recycledView.view == view) {
+                return;
+            }
+        }
+        pool.push(new RecycledView(view, pristineHierarchyState));
+    }
+
+    /**
+     * Returns a view released by a Controller of the passed class that can be added to the passed parent, or
+     * {@code null} if there is none.
+     */
+    @Nullable
+    RecycledView obtain(@NonNull Class<? extends Controller> controllerClass, @NonNull ViewGroup parent) {
+        ArrayDeque<RecycledView> pool = pools.get(controllerClass);
+        if (pool == null) {
+            return null;
+        }
+
+        // Views are released while their change handler may still be removing them, so they can only be reused once
+        // they have actually left their parent. Views that are still in use or were inflated for another Context are dropped.
+        RecycledView recycledView;
+        while ((recycledView = pool.poll()) != null) {
+            View view = recycledView.view;
+            if (view.getParent() == null && view.getContext() == parent.getContext()) {
+                return recycledView;
+            }
+        }
+        return null;
+    }
+
+    void clear() {
+        pools.clear();
+    }
+
+    static final class RecycledView {
+        @NonNull final View view;
+        @NonNull final SparseArray<Parcelable> pristineHierarchyState;
+
+        RecycledView(@NonNull View view, @NonNull SparseArray<Parcelable> pristineHierarchyState) {
+            this.view = view;
+            this.pristineHierarchyState = pristineHierarchyState;
+        }
+    }
+
+}
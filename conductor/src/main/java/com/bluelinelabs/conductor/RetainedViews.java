@@ -0,0 +1,76 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the views that {@link Controller}s in all Routers of the process hold on to while detached, least
+ * recently detached first, and releases the oldest of them whenever the budget set through
+ * {@link Conductor#setRetainedViewBudget(int, long)} is exceeded.
+ */
+final class RetainedViews {
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final Map<Controller, Long> retainedViewBytes = new LinkedHashMap<>();
+    private static int maxViews = Integer.MAX_VALUE;
+    private static long maxBytes = Long.MAX_VALUE;
+    private static long totalBytes;
+
+    private RetainedViews() { }
+
+    static void setBudget(int maxViews, long maxBytes) {
+        RetainedViews.maxViews = maxViews;
+        RetainedViews.maxBytes = maxBytes;
+        trim();
+    }
+
+    /**
+     * Called when a Controller keeps its view after being detached, which makes it the most recently used one.
+     */
+    static void retain(@NonNull Controller controller, @NonNull View view) {
+        remove(controller);
+
+        // Approximates the memory held by a view hierarchy by the size of what it draws
+        long bytes = (long)view.getWidth() * view.getHeight() * BYTES_PER_PIXEL;
+        retainedViewBytes.put(controller, bytes);
+        totalBytes += bytes;
+
+        trim();
+    }
+
+    /**
+     * Called when a Controller's view is attached again or released.
+     */
+    static void remove(@NonNull Controller controller) {
+        Long bytes = retainedViewBytes.remove(controller);
+        if (bytes != null) {
+            totalBytes -= bytes;
+        }
+    }
+
+    /**
+     * Releases the least recently detached views until the budget is met again. Also called whenever a change
+     * completes, since views that were still being removed are skipped and have to be retried.
+     */
+    static void trim() {
+        if (retainedViewBytes.size() <= maxViews && totalBytes <= maxBytes) {
+            return;
+        }
+
+        // Views that are still being removed by a change handler can't be released yet and are skipped
+        List<Controller> controllers = new ArrayList<>(retainedViewBytes.keySet());
+        for (Controller controller : controllers) {
+            if (retainedViewBytes.size() <= maxViews && totalBytes <= maxBytes) {
+                break;
+            }
+            controller.releaseRetainedView();
+        }
+    }
+
+}
@@ -1,12 +1,16 @@
 package com.bluelinelabs.conductor;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Intent;
 import android.content.IntentSender;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.UiThread;
+import android.util.SparseArray;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
@@ -22,9 +26,11 @@ import com.bluelinelabs.conductor.internal.ThreadUtils;
 import com.bluelinelabs.conductor.internal.TransactionIndexer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A Router implements navigation and backstack handling for {@link Controller}s. Router objects are attached
@@ -35,16 +41,38 @@ public abstract class Router {
 
     private static final String KEY_BACKSTACK = "Router.backstack";
     private static final String KEY_POPS_LAST_VIEW = "Router.popsLastView";
+    private static final String KEY_HIBERNATION_DEPTH = "Router.hibernationDepth";
+    private static final String KEY_BACKSTACK_FILE = "Router.backstackFile";
+    private static final String KEY_BACKSTACK_FILE_INSTANCE_IDS = "Router.backstackFileInstanceIds";
+    private static final String KEY_SAVES_STATE_TO_DISK = "Router.savesStateToDisk";
+
+    private static final long DEFAULT_ASYNC_VIEW_CREATION_TIMEOUT_MILLIS = 100;
+    private static final int DEFAULT_MAX_PRELOADED_CONTROLLERS = 2;
+
+    // The number of Controllers at the top of the backstack whose saved view state survives trimming memory
+    private static final int VIEW_STATE_DEPTH_ON_TRIM_MEMORY = 2;
 
     final Backstack backstack = new Backstack();
     private final List<ControllerChangeListener> changeListeners = new ArrayList<>();
     private final List<ChangeTransaction> pendingControllerChanges = new ArrayList<>();
+    private final List<RouterTransaction> preloadedTransactions = new ArrayList<>();
+    private final List<AsyncViewCreation> pendingAsyncViewCreations = new ArrayList<>();
+    private int maxPreloadedControllers = DEFAULT_MAX_PRELOADED_CONTROLLERS;
+    private int viewRetentionDepth;
+    private long navigationStartNanos;
+    private int changesInProgress;
+    private DeferredWorkQueue deferredWorkQueue;
+    private RecycledViewPool recycledViewPool;
     final List<Controller> destroyingControllers = new ArrayList<>();
 
     private boolean popsLastView = false;
+    private int hibernationDepth = 0;
+    private boolean savesStateToDisk = false;
+    private RouterStateFile stateFile;
     boolean containerFullyAttached = false;
 
     ViewGroup container;
+    ControllerIndex controllerIndex;
 
     /**
      * Returns this Router's host Activity or {@code null} if it has either not yet been attached to
@@ -91,7 +119,7 @@ public abstract class Router {
 
         if (!backstack.isEmpty()) {
             //noinspection ConstantConditions
-            if (backstack.peek().controller.handleBack()) {
+            if (backstack.peek().controller().handleBack()) {
                 return true;
             } else if (popCurrentController()) {
                 return true;
@@ -115,7 +143,7 @@ public abstract class Router {
         if (transaction == null) {
             throw new IllegalStateException("Trying to pop the current controller when there are none on the backstack.");
         }
-        return popController(transaction.controller);
+        return popController(transaction.controller());
     }
 
     /**
@@ -128,11 +156,20 @@ public abstract class Router {
     public boolean popController(@NonNull Controller controller) {
         ThreadUtils.ensureMainThread();
 
+        long previousNavigationStartNanos = beginNavigation();
+        try {
+            return performPopController(controller);
+        } finally {
+            endNavigation(previousNavigationStartNanos);
+        }
+    }
+
+    private boolean performPopController(@NonNull Controller controller) {
         RouterTransaction topTransaction = backstack.peek();
         boolean poppingTopController = topTransaction != null && topTransaction.controller == controller;
 
         if (poppingTopController) {
-            trackDestroyingController(backstack.pop());
+            trackDestroyingController(removeFromIndex(backstack.pop()));
             performControllerChange(backstack.peek(), topTransaction, false);
         } else {
             RouterTransaction removedTransaction = null;
@@ -143,9 +180,10 @@ public abstract class Router {
                         trackDestroyingController(transaction);
                     }
                     backstack.remove(transaction);
+                    removeFromIndex(transaction);
                     removedTransaction = transaction;
                 } else if (removedTransaction != null) {
-                    if (!transaction.controller.isAttached()) {
+                    if (transaction.isHibernated() || !transaction.controller.isAttached()) {
                         nextTransaction = transaction;
                     }
                     break;
@@ -157,6 +195,8 @@ public abstract class Router {
             }
         }
 
+        updateHibernation();
+
         if (popsLastView) {
             return topTransaction != null;
         } else {
@@ -174,9 +214,187 @@ public abstract class Router {
     public void pushController(@NonNull RouterTransaction transaction) {
         ThreadUtils.ensureMainThread();
 
-        RouterTransaction from = backstack.peek();
-        pushToBackstack(transaction);
-        performControllerChange(transaction, from, true);
+        long previousNavigationStartNanos = beginNavigation();
+        try {
+            RouterTransaction from = backstack.peek();
+            pushToBackstack(transaction);
+            performControllerChange(transaction, from, true);
+            updateHibernation();
+        } finally {
+            endNavigation(previousNavigationStartNanos);
+        }
+    }
+
+    /**
+     * Pushes a new {@link Controller} to the backstack once its view has been created on a background thread, if
+     * its {@link Controller#canCreateViewAsync()} returns true. Otherwise, or if this Router has no container, the
+     * Controller is pushed right away. If the background thread hasn't started creating the view within 100ms, the
+     * Controller is pushed and its view created on the main thread as usual.
+     *
+     * @param transaction The transaction detailing what should be pushed, including the {@link Controller},
+     *                    and its push and pop {@link ControllerChangeHandler}, and its tag.
+     */
+    @UiThread
+    public void pushControllerAsync(@NonNull RouterTransaction transaction) {
+        pushControllerAsync(transaction, DEFAULT_ASYNC_VIEW_CREATION_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Pushes a new {@link Controller} to the backstack once its view has been created on a background thread, if
+     * its {@link Controller#canCreateViewAsync()} returns true. Otherwise, or if this Router has no container, the
+     * Controller is pushed right away. Until the view is ready, the backstack is unchanged and the push is not
+     * ordered with other changes made to this Router. If this Router's container is removed before then, the
+     * Controller is pushed right away. The push is dropped if the Controller is destroyed before then.
+     *
+     * @param transaction   The transaction detailing what should be pushed, including the {@link Controller},
+     *                      and its push and pop {@link ControllerChangeHandler}, and its tag.
+     * @param timeoutMillis The longest time to wait for the view before pushing the Controller anyway. Its view is then
+     *                      created on the main thread, unless the background thread is still creating it, in which
+     *                      case the change waits for it to finish
+     */
+    @UiThread
+    public void pushControllerAsync(@NonNull final RouterTransaction transaction, long timeoutMillis) {
+        ThreadUtils.ensureMainThread();
+
+        Controller controller = transaction.controller();
+        if (container == null || !controller.canCreateViewAsyncNow()) {
+            pushController(transaction);
+            return;
+        }
+
+        // The view is created with the same Router, Context and container it would have been created with during the change
+        setControllerRouter(controller);
+        pendingAsyncViewCreations.add(AsyncViewCreation.start(controller, container, timeoutMillis, new AsyncViewCreation.Callback() {
+            @Override
+            public void onReady(@NonNull AsyncViewCreation creation) {
+                pendingAsyncViewCreations.remove(creation);
+
+                if (transaction.controller().isBeingDestroyed()) {
+                    creation.cancel();
+                } else {
+                    pushController(transaction);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Creates the view of the passed transaction's {@link Controller} ahead of time, so that a later push of the same
+     * transaction can reuse it instead of calling {@link Controller#onCreateView} while the change starts. The view is
+     * created and its state restored without being added to the container. If more transactions are preloaded than
+     * allowed by {@link #setMaxPreloadedControllers(int)}, the Controllers preloaded longest ago are destroyed.
+     *
+     * @param transaction The transaction that is likely to be pushed next
+     */
+    @UiThread
+    public void preload(@NonNull RouterTransaction transaction) {
+        ThreadUtils.ensureMainThread();
+
+        Controller controller = transaction.controller();
+        if (container == null || controller.getView() != null || controller.isBeingDestroyed() || backstack.contains(transaction)) {
+            return;
+        }
+
+        setControllerRouter(controller);
+        controller.inflate(container);
+
+        preloadedTransactions.add(transaction);
+        trimPreloadedTransactions(maxPreloadedControllers);
+    }
+
+    /**
+     * Sets how many transactions passed to {@link #preload(RouterTransaction)} may be kept ready without having been
+     * pushed. Defaults to 2.
+     *
+     * @param maxPreloadedControllers The maximum number of preloaded Controllers, or 0 to destroy any and disable preloading
+     */
+    @NonNull @UiThread
+    public Router setMaxPreloadedControllers(int maxPreloadedControllers) {
+        ThreadUtils.ensureMainThread();
+
+        if (maxPreloadedControllers < 0) {
+            throw new IllegalArgumentException("The maximum number of preloaded controllers can not be negative.");
+        }
+
+        this.maxPreloadedControllers = maxPreloadedControllers;
+        trimPreloadedTransactions(maxPreloadedControllers);
+        return this;
+    }
+
+    /**
+     * Sets how many views released by {@link Controller.RetainViewMode#RECYCLE} Controllers this Router keeps for
+     * each Controller class, to be rebound by the next Controller of that class that is shown. Defaults to 2.
+     *
+     * @param maxRecycledViewsPerClass The maximum number of recycled views per Controller class, or 0 to disable recycling
+     */
+    @NonNull @UiThread
+    public Router setMaxRecycledViewsPerClass(int maxRecycledViewsPerClass) {
+        ThreadUtils.ensureMainThread();
+
+        if (maxRecycledViewsPerClass < 0) {
+            throw new IllegalArgumentException("The maximum number of recycled views can not be negative.");
+        }
+
+        getRecycledViewPool().setMaxViewsPerClass(maxRecycledViewsPerClass);
+        return this;
+    }
+
+    void recycleView(@NonNull Controller controller, @NonNull View view, @NonNull SparseArray<Parcelable> pristineHierarchyState) {
+        getRecycledViewPool().recycle(controller.getClass(), view, pristineHierarchyState);
+    }
+
+    @Nullable
+    RecycledViewPool.RecycledView obtainRecycledView(@NonNull Controller controller, @NonNull ViewGroup parent) {
+        return recycledViewPool != null ? recycledViewPool.obtain(controller.getClass(), parent) : null;
+    }
+
+    @NonNull
+    private RecycledViewPool getRecycledViewPool() {
+        if (recycledViewPool == null) {
+            recycledViewPool = new RecycledViewPool();
+        }
+        return recycledViewPool;
+    }
+
+    private void trimPreloadedTransactions(int maxPreloadedControllers) {
+        while (preloadedTransactions.size() > maxPreloadedControllers) {
+            destroyPreloaded(preloadedTransactions.remove(0));
+        }
+    }
+
+    boolean hasPreloadCapacity() {
+        return preloadedTransactions.size() < maxPreloadedControllers;
+    }
+
+    /**
+     * Destroys a Controller passed to {@link #preload(RouterTransaction)} that is no longer expected to be pushed.
+     */
+    void discardPreload(@NonNull RouterTransaction transaction) {
+        if (preloadedTransactions.remove(transaction)) {
+            destroyPreloaded(transaction);
+        }
+    }
+
+    private void destroyPreloaded(@NonNull RouterTransaction transaction) {
+        if (transaction.isHibernated()) {
+            return;
+        }
+
+        // Transactions that made it into a backstack of another Router are no longer ours to destroy
+        Controller controller = transaction.controller;
+        if (controller.getRouter() == this && !controller.isAttached() && !controller.isBeingDestroyed() && !backstack.contains(transaction)) {
+            controller.destroy();
+        }
+    }
+
+    /**
+     * Begins a batch of backstack operations that will be applied together as a single change once
+     * {@link RouterBatchTransaction#commit()} is called. Intermediate {@link Controller}s that would not be
+     * visible once all operations are applied are never inflated or animated.
+     */
+    @NonNull
+    public RouterBatchTransaction beginTransaction() {
+        return new RouterBatchTransaction(this);
     }
 
     /**
@@ -190,18 +408,32 @@ public abstract class Router {
     public void replaceTopController(@NonNull RouterTransaction transaction) {
         ThreadUtils.ensureMainThread();
 
+        long previousNavigationStartNanos = beginNavigation();
+        try {
+            performReplaceTopController(transaction);
+        } finally {
+            endNavigation(previousNavigationStartNanos);
+        }
+    }
+
+    private void performReplaceTopController(@NonNull RouterTransaction transaction) {
         RouterTransaction topTransaction = backstack.peek();
         if (!backstack.isEmpty()) {
-            trackDestroyingController(backstack.pop());
+            trackDestroyingController(removeFromIndex(backstack.pop()));
         }
 
-        final ControllerChangeHandler handler = transaction.pushChangeHandler();
+        ControllerChangeHandler pushHandler = transaction.pushChangeHandler();
+        if (pushHandler != null && pushHandler.isShared()) {
+            // Restored handlers may be shared with other transactions, so only a copy is modified below
+            pushHandler = pushHandler.copy();
+        }
+        final ControllerChangeHandler handler = pushHandler;
         if (topTransaction != null) {
             //noinspection ConstantConditions
             final boolean oldHandlerRemovedViews = topTransaction.pushChangeHandler() == null || topTransaction.pushChangeHandler().removesFromViewOnPush();
             final boolean newHandlerRemovesViews = handler == null || handler.removesFromViewOnPush();
             if (!oldHandlerRemovedViews && newHandlerRemovesViews) {
-                for (RouterTransaction visibleTransaction : getVisibleTransactions(backstack.iterator())) {
+                for (RouterTransaction visibleTransaction : BackstackDiff.visibleTransactions(backstack.iterator())) {
                     performControllerChange(null, visibleTransaction, true, handler);
                 }
             }
@@ -213,16 +445,39 @@ public abstract class Router {
             handler.setForceRemoveViewOnPush(true);
         }
         performControllerChange(transaction.pushChangeHandler(handler), topTransaction, true);
+        updateHibernation();
     }
 
     void destroy(boolean popViews) {
+        destroy(popViews, false);
+    }
+
+    /**
+     * @param keepState Whether the saved state of this Router's Controllers is kept to recreate them later, in which
+     *                  case their activity result registrations are kept as well
+     */
+    void destroy(boolean popViews, boolean keepState) {
+        trimPreloadedTransactions(0);
+
+        if (recycledViewPool != null) {
+            recycledViewPool.clear();
+        }
+
         popsLastView = true;
-        final List<RouterTransaction> poppedControllers = backstack.popAll();
+        final List<RouterTransaction> poppedControllers = backstack.popAll(keepState);
+        for (RouterTransaction transaction : poppedControllers) {
+            removeFromIndex(transaction);
+        }
         trackDestroyingControllers(poppedControllers);
 
         if (popViews && poppedControllers.size() > 0) {
             RouterTransaction topTransaction = poppedControllers.get(0);
             topTransaction.controller().addLifecycleListener(new LifecycleListener() {
+                @Override
+                public int getSubscribedEvents() {
+                    return EVENT_CHANGE_END;
+                }
+
                 @Override
                 public void onChangeEnd(@NonNull Controller controller, @NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeType changeType) {
                     if (changeType == ControllerChangeType.POP_EXIT) {
@@ -253,6 +508,104 @@ public abstract class Router {
         return this;
     }
 
+    /**
+     * If set to true, this router will write its saved backstack, including all view and instance state of its
+     * {@link Controller}s and their child Routers, to an app-private file instead of the Activity's saved instance
+     * state. Only the path of that file and the instance IDs of the saved Controllers are kept in the Bundle, which
+     * avoids {@code TransactionTooLargeException}s for large backstacks. The file is written on a background thread,
+     * read synchronously when this router is restored and deleted once its Activity finishes. Files of Routers that
+     * are never restored are kept, so once too many of them exist the state is kept in the Bundle again. Defaults to
+     * false.
+     */
+    @NonNull
+    public Router setSavesStateToDisk(boolean savesStateToDisk) {
+        this.savesStateToDisk = savesStateToDisk;
+        return this;
+    }
+
+    /**
+     * Sets how many {@link Controller}s at the top of the backstack are always kept in memory. Controllers deeper than
+     * this that neither hold a view nor are changing will be hibernated: their state is saved just as it would be for
+     * process death and the instance is released, then recreated from that state once it comes back within this depth
+     * or is looked up by instance ID or tag. The released instance is destroyed just like a popped Controller, so
+     * references held to it should be considered stale. When this Router is restored, Controllers deeper than this
+     * depth are only created once they are needed. Defaults to 0, which disables hibernation.
+     *
+     * @param depth The number of Controllers from the top of the backstack that will never be hibernated, or 0 to
+     *              disable hibernation
+     */
+    @NonNull @UiThread
+    public Router setHibernationDepth(int depth) {
+        ThreadUtils.ensureMainThread();
+
+        if (depth < 0) {
+            throw new IllegalArgumentException("The hibernation depth can not be negative.");
+        }
+
+        hibernationDepth = depth;
+        updateHibernation();
+        return this;
+    }
+
+    /**
+     * Sets how many {@link Controller}s at the top of the backstack keep their views while detached, so that popping
+     * back to them doesn't require their views to be created again. Deeper Controllers release their views as soon
+     * as they are no longer in use. When set, this takes precedence over the {@link Controller.RetainViewMode} of
+     * Controllers using {@link Controller.RetainViewMode#RELEASE_DETACH} or {@link Controller.RetainViewMode#RETAIN_DETACH}.
+     * Views kept this way count towards the budget set through {@link Conductor#setRetainedViewBudget(int, long)}.
+     * Defaults to 0, which leaves retention up to each Controller's RetainViewMode.
+     *
+     * @param depth The number of Controllers from the top of the backstack that keep their views, or 0 to disable
+     *              this window
+     */
+    @NonNull @UiThread
+    public Router setViewRetentionDepth(int depth) {
+        ThreadUtils.ensureMainThread();
+
+        if (depth < 0) {
+            throw new IllegalArgumentException("The view retention depth can not be negative.");
+        }
+
+        viewRetentionDepth = depth;
+        updateHibernation();
+        return this;
+    }
+
+    int getViewRetentionDepth() {
+        return viewRetentionDepth;
+    }
+
+    boolean isWithinViewRetentionWindow(@NonNull Controller controller) {
+        int depth = 0;
+        for (RouterTransaction transaction : backstack) {
+            if (depth >= viewRetentionDepth) {
+                break;
+            } else if (transaction.controller == controller) {
+                return true;
+            }
+            depth++;
+        }
+        return false;
+    }
+
+    /**
+     * If set to true, changes made through this Router's root Router and any of its child Routers are no longer
+     * executed right away, but queued and executed together on the next frame. A push and pop of the same
+     * {@link Controller} within one frame cancel each other out, and pushing or replacing on top of a Controller whose
+     * push hasn't run yet replaces that push, so only the net change is inflated and animated. Changes that are
+     * cancelled out are never reported to {@link ControllerChangeListener}s. Defaults to false.
+     */
+    @NonNull @UiThread
+    public Router setFrameAlignedChanges(boolean frameAligned) {
+        ThreadUtils.ensureMainThread();
+
+        ChangeScheduler changeScheduler = getChangeScheduler();
+        if (changeScheduler != null) {
+            changeScheduler.setEnabled(frameAligned);
+        }
+        return this;
+    }
+
     /**
      * Pops all {@link Controller}s until only the root is left
      *
@@ -310,11 +663,10 @@ public abstract class Router {
     public boolean popToTag(@NonNull String tag, @Nullable ControllerChangeHandler changeHandler) {
         ThreadUtils.ensureMainThread();
 
-        for (RouterTransaction transaction : backstack) {
-            if (tag.equals(transaction.tag())) {
-                popToTransaction(transaction, changeHandler);
-                return true;
-            }
+        RouterTransaction transaction = backstack.findByTag(tag);
+        if (transaction != null) {
+            popToTransaction(transaction, changeHandler);
+            return true;
         }
         return false;
     }
@@ -342,7 +694,11 @@ public abstract class Router {
     @Nullable
     public Controller getControllerWithInstanceId(@NonNull String instanceId) {
         for (RouterTransaction transaction : backstack) {
-            Controller controllerWithId = transaction.controller.findController(instanceId);
+            if (transaction.isHibernated() && !transaction.hibernatedInstanceIds().contains(instanceId)) {
+                continue;
+            }
+
+            Controller controllerWithId = transaction.controller().findController(instanceId);
             if (controllerWithId != null) {
                 return controllerWithId;
             }
@@ -358,12 +714,8 @@ public abstract class Router {
      */
     @Nullable
     public Controller getControllerWithTag(@NonNull String tag) {
-        for (RouterTransaction transaction : backstack) {
-            if (tag.equals(transaction.tag())) {
-                return transaction.controller;
-            }
-        }
-        return null;
+        RouterTransaction transaction = backstack.findByTag(tag);
+        return transaction != null ? transaction.controller() : null;
     }
 
     /**
@@ -375,7 +727,8 @@ public abstract class Router {
     }
 
     /**
-     * Returns the current backstack, ordered from root to most recently pushed.
+     * Returns the current backstack, ordered from root to most recently pushed. Calling
+     * {@link RouterTransaction#controller()} on a hibernated transaction recreates its Controller as a new instance.
      */
     @NonNull
     public List<RouterTransaction> getBackstack() {
@@ -389,7 +742,8 @@ public abstract class Router {
 
     /**
      * Sets the backstack, transitioning from the current top controller to the top of the new stack (if different)
-     * using the passed {@link ControllerChangeHandler}
+     * using the passed {@link ControllerChangeHandler}. Setting an empty backstack pops the current top controller
+     * just like {@link #popController(Controller)} would, using its pop handler if no handler is passed.
      *
      * @param newBackstack  The new backstack
      * @param changeHandler An optional change handler to be used to handle the root view of transition
@@ -399,25 +753,35 @@ public abstract class Router {
     public void setBackstack(@NonNull List<RouterTransaction> newBackstack, @Nullable ControllerChangeHandler changeHandler) {
         ThreadUtils.ensureMainThread();
 
-        List<RouterTransaction> oldVisibleTransactions = getVisibleTransactions(backstack.iterator());
+        boolean traced = Tracing.begin("Router.setBackstack");
+        long previousNavigationStartNanos = beginNavigation();
+        try {
+            performSetBackstack(newBackstack, changeHandler);
+        } finally {
+            endNavigation(previousNavigationStartNanos);
+            Tracing.end(traced);
+        }
+    }
+
+    private void performSetBackstack(@NonNull List<RouterTransaction> newBackstack, @Nullable ControllerChangeHandler changeHandler) {
+        BackstackDiff diff = new BackstackDiff(backstack, newBackstack);
+        List<RouterTransaction> oldVisibleTransactions = diff.oldVisibleTransactions;
+        List<RouterTransaction> newVisibleTransactions = diff.newVisibleTransactions;
 
-        boolean newRootRequiresPush = !(newBackstack.size() > 0 && backstack.contains(newBackstack.get(0)));
+        boolean newRootRequiresPush = !(newVisibleTransactions.size() > 0 && diff.wasOnBackstack(newVisibleTransactions.get(0)));
 
-        removeAllExceptVisibleAndUnowned();
+        removeAllExceptVisibleAndUnowned(oldVisibleTransactions);
         ensureOrderedTransactionIndices(newBackstack);
+        updateIndex(diff);
 
-        backstack.setBackstack(newBackstack);
+        backstack.setBackstack(diff);
         for (RouterTransaction transaction : backstack) {
             transaction.onAttachedToRouter();
+            preloadedTransactions.remove(transaction);
         }
 
         if (newBackstack.size() > 0) {
-            List<RouterTransaction> reverseNewBackstack = new ArrayList<>(newBackstack);
-            Collections.reverse(reverseNewBackstack);
-            List<RouterTransaction> newVisibleTransactions = getVisibleTransactions(reverseNewBackstack.iterator());
-
-            boolean visibleTransactionsChanged = !backstacksAreEqual(newVisibleTransactions, oldVisibleTransactions);
-            if (visibleTransactionsChanged) {
+            if (diff.visibleTransactionsChanged()) {
                 RouterTransaction oldRootTransaction = oldVisibleTransactions.size() > 0 ? oldVisibleTransactions.get(0) : null;
                 RouterTransaction newRootTransaction = newVisibleTransactions.get(0);
 
@@ -425,7 +789,7 @@ public abstract class Router {
                 if (oldRootTransaction == null || oldRootTransaction.controller != newRootTransaction.controller) {
                     // Ensure the existing root controller is fully pushed to the view hierarchy
                     if (oldRootTransaction != null) {
-                        ControllerChangeHandler.completeHandlerImmediately(oldRootTransaction.controller.getInstanceId());
+                        ControllerChangeHandler.completeHandlerImmediately(oldRootTransaction.controller);
                     }
                     performControllerChange(newRootTransaction, oldRootTransaction, newRootRequiresPush, changeHandler);
                 }
@@ -433,10 +797,10 @@ public abstract class Router {
                 // Remove all visible controllers that were previously on the backstack
                 for (int i = oldVisibleTransactions.size() - 1; i > 0; i--) {
                     RouterTransaction transaction = oldVisibleTransactions.get(i);
-                    if (!newVisibleTransactions.contains(transaction)) {
+                    if (!diff.isVisible(transaction)) {
                         ControllerChangeHandler localHandler = changeHandler != null ? changeHandler.copy() : new SimpleSwapChangeHandler();
                         localHandler.setForceRemoveViewOnPush(true);
-                        ControllerChangeHandler.completeHandlerImmediately(transaction.controller.getInstanceId());
+                        ControllerChangeHandler.completeHandlerImmediately(transaction.controller);
                         performControllerChange(null, transaction, newRootRequiresPush, localHandler);
                     }
                 }
@@ -444,7 +808,7 @@ public abstract class Router {
                 // Add any new controllers to the backstack
                 for (int i = 1; i < newVisibleTransactions.size(); i++) {
                     RouterTransaction transaction = newVisibleTransactions.get(i);
-                    if (!oldVisibleTransactions.contains(transaction)) {
+                    if (!diff.wasVisible(transaction)) {
                         performControllerChange(transaction, newVisibleTransactions.get(i - 1), true, transaction.pushChangeHandler());
                     }
                 }
@@ -452,9 +816,24 @@ public abstract class Router {
 
             // Ensure all new controllers have a valid router set
             for (RouterTransaction transaction : newBackstack) {
-                transaction.controller.setRouter(this);
+                if (!transaction.isHibernated()) {
+                    transaction.controller.setRouter(this);
+                }
             }
+        } else if (oldVisibleTransactions.size() > 0) {
+            // Emptying the backstack pops the old top in a single change, just like popping the last controller would
+            trackDestroyingControllers(oldVisibleTransactions);
+
+            RouterTransaction oldTopTransaction = oldVisibleTransactions.get(oldVisibleTransactions.size() - 1);
+            for (int i = 0; i < oldVisibleTransactions.size() - 1; i++) {
+                RouterTransaction transaction = oldVisibleTransactions.get(i);
+                ControllerChangeHandler.completeHandlerImmediately(transaction.controller);
+                performControllerChange(null, transaction, false, new SimpleSwapChangeHandler());
+            }
+            performControllerChange(null, oldTopTransaction, false, changeHandler != null ? changeHandler : oldTopTransaction.popChangeHandler());
         }
+
+        updateHibernation();
     }
 
     /**
@@ -486,6 +865,86 @@ public abstract class Router {
         changeListeners.remove(changeListener);
     }
 
+    /**
+     * Queues work to be run once none of this Router's {@link Controller} changes are in progress or waiting to be
+     * executed, so that it doesn't compete with change handlers for frames. Queued work is run one item per frame.
+     *
+     * @param work The work to run
+     */
+    @UiThread
+    public void postAfterChange(@NonNull Runnable work) {
+        postAfterChange(work, 0);
+    }
+
+    /**
+     * Queues work to be run once none of this Router's {@link Controller} changes are in progress or waiting to be
+     * executed, so that it doesn't compete with change handlers for frames. Queued work is run one item per frame,
+     * highest priority first and in the order it was posted within the same priority.
+     *
+     * @param work     The work to run
+     * @param priority The priority of this work relative to other queued work
+     */
+    @UiThread
+    public void postAfterChange(@NonNull Runnable work, int priority) {
+        ThreadUtils.ensureMainThread();
+
+        postAfterChange(work, priority, null);
+    }
+
+    /**
+     * Removes work queued with {@link #postAfterChange(Runnable)} that hasn't been run yet.
+     *
+     * @param work The work to remove
+     */
+    @UiThread
+    public void cancelPostAfterChange(@NonNull Runnable work) {
+        ThreadUtils.ensureMainThread();
+
+        if (deferredWorkQueue != null) {
+            deferredWorkQueue.cancel(work);
+        }
+    }
+
+    void postAfterChange(@NonNull Runnable work, int priority, @Nullable Controller owner) {
+        if (deferredWorkQueue == null) {
+            deferredWorkQueue = new DeferredWorkQueue(this);
+        }
+        deferredWorkQueue.post(work, priority, owner);
+    }
+
+    void cancelPostAfterChange(@NonNull Controller owner) {
+        if (deferredWorkQueue != null) {
+            deferredWorkQueue.cancelAll(owner);
+        }
+    }
+
+    boolean hasChangesInProgress() {
+        return changesInProgress > 0 || pendingControllerChanges.size() > 0 || hasScheduledChanges();
+    }
+
+    void onChangeInProgressStarted() {
+        changesInProgress++;
+    }
+
+    void onChangeInProgressCompleted() {
+        if (changesInProgress > 0) {
+            changesInProgress--;
+        }
+
+        // Views that were still being removed by the change couldn't be released when the backstack changed
+        if (!hasChangesInProgress()) {
+            releaseViewsOutsideRetentionWindow();
+        }
+        RetainedViews.trim();
+        onChangesSettled();
+    }
+
+    private void onChangesSettled() {
+        if (deferredWorkQueue != null) {
+            deferredWorkQueue.onChangesSettled();
+        }
+    }
+
     /**
      * Attaches this Router's existing backstack to its container if one exists.
      */
@@ -497,7 +956,7 @@ public abstract class Router {
         while (backstackIterator.hasNext()) {
             RouterTransaction transaction = backstackIterator.next();
 
-            if (transaction.controller.getNeedsAttach()) {
+            if (transaction.needsAttach()) {
                 performControllerChange(transaction, null, true, new SimpleSwapChangeHandler(false));
             }
         }
@@ -512,6 +971,10 @@ public abstract class Router {
 
     public final void onActivityStarted(@NonNull Activity activity) {
         for (RouterTransaction transaction : backstack) {
+            if (transaction.isHibernated()) {
+                continue;
+            }
+
             transaction.controller.activityStarted(activity);
 
             for (Router childRouter : transaction.controller.getChildRouters()) {
@@ -522,6 +985,10 @@ public abstract class Router {
 
     public final void onActivityResumed(@NonNull Activity activity) {
         for (RouterTransaction transaction : backstack) {
+            if (transaction.isHibernated()) {
+                continue;
+            }
+
             transaction.controller.activityResumed(activity);
 
             for (Router childRouter : transaction.controller.getChildRouters()) {
@@ -532,6 +999,10 @@ public abstract class Router {
 
     public final void onActivityPaused(@NonNull Activity activity) {
         for (RouterTransaction transaction : backstack) {
+            if (transaction.isHibernated()) {
+                continue;
+            }
+
             transaction.controller.activityPaused(activity);
 
             for (Router childRouter : transaction.controller.getChildRouters()) {
@@ -542,6 +1013,10 @@ public abstract class Router {
 
     public final void onActivityStopped(@NonNull Activity activity) {
         for (RouterTransaction transaction : backstack) {
+            if (transaction.isHibernated()) {
+                continue;
+            }
+
             transaction.controller.activityStopped(activity);
 
             for (Router childRouter : transaction.controller.getChildRouters()) {
@@ -550,11 +1025,78 @@ public abstract class Router {
         }
     }
 
+    /**
+     * Frees memory held by this Router's {@link Controller}s and those of its child Routers according to the passed
+     * {@link ComponentCallbacks2} trim level. Detached Controllers release their views at
+     * {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN}, Controllers deep in the backstack drop their saved view state
+     * from {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} on, and detached Controllers release their views again
+     * from {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_CRITICAL} on. At those levels, Routers with a hibernation
+     * depth set through {@link #setHibernationDepth(int)} also hibernate all Controllers that aren't visible. The
+     * background levels include all of these. Controllers can veto each of them through
+     * {@link Controller#shouldTrimMemory(Controller.TrimMemoryAction)}.
+     */
+    public final void onTrimMemory(int level) {
+        if (pendingControllerChanges.size() > 0 || hasScheduledChanges()) {
+            // Pending changes still reference their controller instances and views
+            return;
+        }
+
+        // UI_HIDDEN only tells that the UI went away, while the running and background levels grow with memory pressure
+        boolean uiHidden = level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+        boolean dropSavedState = !uiHidden && level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW;
+        boolean critical = !uiHidden && level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL;
+        boolean releaseViews = uiHidden || critical;
+        boolean hibernate = critical && hibernationDepth > 0;
+
+        if (releaseViews) {
+            trimPreloadedTransactions(0);
+
+            if (recycledViewPool != null) {
+                recycledViewPool.clear();
+            }
+        }
+
+        int depth = 0;
+        for (RouterTransaction transaction : backstack) {
+            if (!transaction.isHibernated()) {
+                Controller controller = transaction.controller;
+
+                // Child Routers come first so that their views and state are gone before this Controller is hibernated
+                for (Router childRouter : controller.getChildRouters()) {
+                    childRouter.onTrimMemory(level);
+                }
+
+                controller.trimMemory(level, releaseViews, dropSavedState, depth >= VIEW_STATE_DEPTH_ON_TRIM_MEMORY);
+
+                if (hibernate && depth > 0 && controller.canHibernate() && controller.shouldTrimMemory(Controller.TrimMemoryAction.HIBERNATE)) {
+                    hibernate(transaction);
+                }
+            }
+            depth++;
+        }
+    }
+
     public void onActivityDestroyed(@NonNull Activity activity) {
         prepareForContainerRemoval();
         changeListeners.clear();
 
+        if (deferredWorkQueue != null) {
+            deferredWorkQueue.cancelAll();
+        }
+
+        // Preloaded controllers aren't part of the saved state, so they can't outlive their Activity
+        trimPreloadedTransactions(0);
+
+        if (stateFile != null && activity.isFinishing()) {
+            stateFile.delete();
+            stateFile = null;
+        }
+
         for (RouterTransaction transaction : backstack) {
+            if (transaction.isHibernated()) {
+                continue;
+            }
+
             transaction.controller.activityDestroyed(activity.isChangingConfigurations());
 
             for (Router childRouter : transaction.controller.getChildRouters()) {
@@ -571,12 +1113,21 @@ public abstract class Router {
             }
         }
 
+        // Recycled views, including those just released above, belong to the Activity's Context
+        if (recycledViewPool != null) {
+            recycledViewPool.clear();
+        }
+
         container = null;
     }
 
     void prepareForHostDetach() {
         for (RouterTransaction transaction : backstack) {
-            if (ControllerChangeHandler.completeHandlerImmediately(transaction.controller.getInstanceId())) {
+            if (transaction.isHibernated()) {
+                continue;
+            }
+
+            if (ControllerChangeHandler.completeHandlerImmediately(transaction.controller)) {
                 transaction.controller.setNeedsAttach(true);
             }
             transaction.controller.prepareForHostDetach();
@@ -584,29 +1135,85 @@ public abstract class Router {
     }
 
     public void saveInstanceState(@NonNull Bundle outState) {
+        boolean traced = Tracing.begin("Router.saveInstanceState");
+        try {
+            performSaveInstanceState(outState);
+        } finally {
+            Tracing.end(traced);
+        }
+    }
+
+    private void performSaveInstanceState(@NonNull Bundle outState) {
+        // Controllers are only saved as needing to be attached once their changes have run
+        ChangeScheduler changeScheduler = getChangeScheduler();
+        if (changeScheduler != null) {
+            changeScheduler.runScheduledChanges();
+        }
+
         prepareForHostDetach();
 
         Bundle backstackState = new Bundle();
         backstack.saveInstanceState(backstackState);
 
-        outState.putParcelable(KEY_BACKSTACK, backstackState);
+        if (savesStateToDisk && saveToStateFile(backstackState)) {
+            // Lets a hibernated parent find these controllers by instance ID without reading the file
+            ArrayList<String> instanceIds = new ArrayList<>();
+            Backstack.collectInstanceIds(backstackState, instanceIds);
+            outState.putString(KEY_BACKSTACK_FILE, stateFile.getPath());
+            outState.putStringArrayList(KEY_BACKSTACK_FILE_INSTANCE_IDS, instanceIds);
+        } else {
+            outState.putParcelable(KEY_BACKSTACK, backstackState);
+        }
+        outState.putBoolean(KEY_SAVES_STATE_TO_DISK, savesStateToDisk);
         outState.putBoolean(KEY_POPS_LAST_VIEW, popsLastView);
+        outState.putInt(KEY_HIBERNATION_DEPTH, hibernationDepth);
     }
 
     public void restoreInstanceState(@NonNull Bundle savedInstanceState) {
         Bundle backstackBundle = savedInstanceState.getParcelable(KEY_BACKSTACK);
-        //noinspection ConstantConditions
-        backstack.restoreInstanceState(backstackBundle);
+        String backstackFilePath = savedInstanceState.getString(KEY_BACKSTACK_FILE);
+        if (backstackBundle == null && backstackFilePath != null) {
+            stateFile = RouterStateFile.fromPath(backstackFilePath);
+            backstackBundle = stateFile.read(getClass().getClassLoader());
+        }
+        if (backstackBundle != null) {
+            backstack.restoreInstanceState(backstackBundle);
+        }
+        savesStateToDisk = savedInstanceState.getBoolean(KEY_SAVES_STATE_TO_DISK);
         popsLastView = savedInstanceState.getBoolean(KEY_POPS_LAST_VIEW);
+        hibernationDepth = savedInstanceState.getInt(KEY_HIBERNATION_DEPTH);
 
+        // Transactions are restored hibernated, but only Routers that hibernate Controllers keep them that way
         Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
         while (backstackIterator.hasNext()) {
-            setControllerRouter(backstackIterator.next().controller);
+            RouterTransaction transaction = backstackIterator.next();
+            if (transaction.isHibernated()) {
+                transaction.setHibernatingRouter(this);
+            } else {
+                setControllerRouter(transaction.controller);
+            }
+        }
+
+        if (controllerIndex != null) {
+            controllerIndex.add(this);
+        }
+
+        if (hibernationDepth == 0) {
+            backstackIterator = backstack.reverseIterator();
+            while (backstackIterator.hasNext()) {
+                backstackIterator.next().controller();
+            }
         }
+
+        updateHibernation();
     }
 
     public final void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
         for (RouterTransaction transaction : backstack) {
+            if (transaction.isHibernated()) {
+                continue;
+            }
+
             transaction.controller.createOptionsMenu(menu, inflater);
 
             for (Router childRouter : transaction.controller.getChildRouters()) {
@@ -617,6 +1224,10 @@ public abstract class Router {
 
     public final void onPrepareOptionsMenu(@NonNull Menu menu) {
         for (RouterTransaction transaction : backstack) {
+            if (transaction.isHibernated()) {
+                continue;
+            }
+
             transaction.controller.prepareOptionsMenu(menu);
 
             for (Router childRouter : transaction.controller.getChildRouters()) {
@@ -627,6 +1238,10 @@ public abstract class Router {
 
     public final boolean onOptionsItemSelected(@NonNull MenuItem item) {
         for (RouterTransaction transaction : backstack) {
+            if (transaction.isHibernated()) {
+                continue;
+            }
+
             if (transaction.controller.optionsItemSelected(item)) {
                 return true;
             }
@@ -663,6 +1278,20 @@ public abstract class Router {
         }
     }
 
+    private boolean saveToStateFile(@NonNull Bundle backstackState) {
+        if (stateFile == null) {
+            Activity activity = getActivity();
+            if (activity == null) {
+                return false;
+            }
+            stateFile = RouterStateFile.create(activity);
+            if (stateFile == null) {
+                return false;
+            }
+        }
+        return stateFile.write(backstackState);
+    }
+
     void watchContainerAttach() {
         container.post(new Runnable() {
             @Override
@@ -675,6 +1304,19 @@ public abstract class Router {
     void prepareForContainerRemoval() {
         containerFullyAttached = false;
 
+        // Pushes waiting for their views are made right away, so that they are part of the backstack that gets saved
+        for (AsyncViewCreation creation : new ArrayList<>(pendingAsyncViewCreations)) {
+            creation.finish();
+        }
+
+        // Changes running in the container that is going away may never report their completion
+        changesInProgress = 0;
+
+        ChangeScheduler changeScheduler = getChangeScheduler();
+        if (changeScheduler != null) {
+            changeScheduler.cancelScheduledChanges(this);
+        }
+
         if (container != null) {
             container.setOnHierarchyChangeListener(null);
         }
@@ -686,7 +1328,7 @@ public abstract class Router {
 
         Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
         while (backstackIterator.hasNext()) {
-            controllers.add(backstackIterator.next().controller);
+            controllers.add(backstackIterator.next().controller());
         }
 
         return controllers;
@@ -695,7 +1337,7 @@ public abstract class Router {
     @Nullable
     public final Boolean handleRequestedPermission(@NonNull String permission) {
         for (RouterTransaction transaction : backstack) {
-            if (transaction.controller.didRequestPermission(permission)) {
+            if (!transaction.isHibernated() && transaction.controller.didRequestPermission(permission)) {
                 return transaction.controller.shouldShowRequestPermissionRationale(permission);
             }
         }
@@ -721,10 +1363,11 @@ public abstract class Router {
     }
 
     private void performControllerChange(@Nullable RouterTransaction to, @Nullable RouterTransaction from, boolean isPush, @Nullable ControllerChangeHandler changeHandler) {
-        Controller toController = to != null ? to.controller : null;
-        Controller fromController = from != null ? from.controller : null;
+        Controller toController = to != null ? to.controller() : null;
+        Controller fromController = from != null ? from.controller() : null;
 
         if (to != null) {
+            preloadedTransactions.remove(to);
             to.ensureValidIndex(getTransactionIndexer());
             setControllerRouter(toController);
         } else if (backstack.size() == 0 && !popsLastView) {
@@ -741,16 +1384,25 @@ public abstract class Router {
             throw new IllegalStateException("Trying to push a controller that has already been destroyed. (" + to.getClass().getSimpleName() + ")");
         }
 
-        final ChangeTransaction transaction = new ChangeTransaction(to, from, isPush, container, changeHandler, changeListeners);
+        final ChangeTransaction transaction = new ChangeTransaction(to, from, isPush, container, changeHandler, changeListeners, navigationStartNanos);
 
+        ChangeScheduler changeScheduler = getChangeScheduler();
+        if (changeScheduler != null && changeScheduler.isEnabled()) {
+            changeScheduler.schedule(this, transaction);
+        } else {
+            executeControllerChange(transaction);
+        }
+    }
+
+    void executeControllerChange(@NonNull ChangeTransaction transaction) {
         if (pendingControllerChanges.size() > 0) {
             // If we already have changes queued up (awaiting full container attach), queue this one up as well so they don't happen
             // out of order.
             pendingControllerChanges.add(transaction);
-        } else if (from != null && (changeHandler == null || changeHandler.removesFromViewOnPush()) && !containerFullyAttached) {
+        } else if (transaction.from != null && (transaction.changeHandler == null || transaction.changeHandler.removesFromViewOnPush()) && !isContainerReady()) {
             // If the change handler will remove the from view, we have to make sure the container is fully attached first so we avoid NPEs
-            // within ViewGroup (details on issue #287). Post this to the container to ensure the attach is complete before we try to remove
-            // anything.
+            // within ViewGroup (details on issue #287). If we can't tell that it is, post this to the container to ensure the attach is
+            // complete before we try to remove anything.
             pendingControllerChanges.add(transaction);
             container.post(new Runnable() {
                 @Override
@@ -763,6 +1415,46 @@ public abstract class Router {
         }
     }
 
+    /**
+     * Returns whether views can safely be removed from the container without waiting for a posted Runnable. That's only unsafe while
+     * the container is dispatching its attach to its children, which can't be the case if it isn't attached to a window at all, or if
+     * it has been laid out since it was attached.
+     */
+    private boolean isContainerReady() {
+        if (containerFullyAttached || container == null || container.getWindowToken() == null) {
+            return true;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && container.isLaidOut()) {
+            containerFullyAttached = true;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Marks the start of a navigation call for {@link NavigationMetrics}, unless this call is nested in another one.
+     *
+     * @return The start time to restore with {@link #endNavigation(long)} once this call returns
+     */
+    private long beginNavigation() {
+        long previousNavigationStartNanos = navigationStartNanos;
+        if (previousNavigationStartNanos == 0 && NavigationMetrics.isEnabled()) {
+            navigationStartNanos = System.nanoTime();
+        }
+        return previousNavigationStartNanos;
+    }
+
+    private void endNavigation(long previousNavigationStartNanos) {
+        navigationStartNanos = previousNavigationStartNanos;
+    }
+
+    void onScheduledChangesExecuted() {
+        updateHibernation();
+        onChangesSettled();
+    }
+
     void performPendingControllerChanges() {
         // We're intentionally using dynamic size checking (list.size()) here so we can account for changes
         // that occur during this loop (ex: if a controller is popped from within onAttach)
@@ -770,17 +1462,52 @@ public abstract class Router {
             ControllerChangeHandler.executeChange(pendingControllerChanges.get(i));
         }
         pendingControllerChanges.clear();
+
+        updateHibernation();
+        onChangesSettled();
     }
 
     protected void pushToBackstack(@NonNull RouterTransaction entry) {
         backstack.push(entry);
+        preloadedTransactions.remove(entry);
+
+        if (controllerIndex != null) {
+            controllerIndex.add(entry);
+        }
+    }
+
+    @NonNull
+    RouterTransaction removeFromIndex(@NonNull RouterTransaction transaction) {
+        if (controllerIndex != null) {
+            controllerIndex.remove(transaction);
+        }
+        return transaction;
+    }
+
+    private void updateIndex(@NonNull BackstackDiff diff) {
+        if (controllerIndex != null) {
+            for (RouterTransaction transaction : backstack) {
+                if (!diff.isRetained(transaction)) {
+                    controllerIndex.remove(transaction);
+                }
+            }
+
+            for (RouterTransaction transaction : diff.newBackstack) {
+                controllerIndex.add(transaction);
+            }
+        }
     }
 
     private void trackDestroyingController(@NonNull RouterTransaction transaction) {
-        if (!transaction.controller.isDestroyed()) {
+        if (!transaction.isHibernated() && !transaction.controller.isDestroyed()) {
             destroyingControllers.add(transaction.controller);
 
             transaction.controller.addLifecycleListener(new LifecycleListener() {
+                @Override
+                public int getSubscribedEvents() {
+                    return EVENT_POST_DESTROY;
+                }
+
                 @Override
                 public void postDestroy(@NonNull Controller controller) {
                     destroyingControllers.remove(controller);
@@ -795,10 +1522,10 @@ public abstract class Router {
         }
     }
 
-    private void removeAllExceptVisibleAndUnowned() {
-        List<View> views = new ArrayList<>();
+    private void removeAllExceptVisibleAndUnowned(@NonNull List<RouterTransaction> visibleTransactions) {
+        Set<View> views = BackstackDiff.newIdentitySet(visibleTransactions.size());
 
-        for (RouterTransaction transaction : getVisibleTransactions(backstack.iterator())) {
+        for (RouterTransaction transaction : visibleTransactions) {
             if (transaction.controller.getView() != null) {
                 views.add(transaction.controller.getView());
             }
@@ -806,12 +1533,11 @@ public abstract class Router {
 
         for (Router router : getSiblingRouters()) {
             if (router.container == container) {
-                addRouterViewsToList(router, views);
+                addRouterViewsToSet(router, views);
             }
         }
 
-        final int childCount = container.getChildCount();
-        for (int i = 0; i < childCount; i++) {
+        for (int i = container.getChildCount() - 1; i >= 0; i--) {
             final View child = container.getChildAt(i);
             if (!views.contains(child)) {
                 container.removeView(child);
@@ -822,63 +1548,113 @@ public abstract class Router {
     // Swap around transaction indicies to ensure they don't get thrown out of order by the
     // developer rearranging the backstack at runtime.
     private void ensureOrderedTransactionIndices(List<RouterTransaction> backstack) {
-        List<Integer> indices = new ArrayList<>();
+        final int size = backstack.size();
+        int[] indices = new int[size];
+
+        int i = 0;
         for (RouterTransaction transaction : backstack) {
             transaction.ensureValidIndex(getTransactionIndexer());
-            indices.add(transaction.transactionIndex);
+            indices[i++] = transaction.transactionIndex;
         }
 
-        Collections.sort(indices);
+        Arrays.sort(indices);
 
-        for (int i = 0; i < backstack.size(); i++) {
-            backstack.get(i).transactionIndex = indices.get(i);
+        i = 0;
+        for (RouterTransaction transaction : backstack) {
+            transaction.transactionIndex = indices[i++];
         }
     }
 
-    private void addRouterViewsToList(@NonNull Router router, @NonNull List<View> list) {
-        for (Controller controller : router.getControllers()) {
+    private void addRouterViewsToSet(@NonNull Router router, @NonNull Set<View> views) {
+        for (RouterTransaction transaction : router.backstack) {
+            Controller controller = transaction.controller;
+            if (controller == null) {
+                continue;
+            }
+
             if (controller.getView() != null) {
-                list.add(controller.getView());
+                views.add(controller.getView());
             }
 
-            for (Router child : controller.getChildRouters()) {
-                addRouterViewsToList(child, list);
+            for (Router child : controller.childRouters) {
+                addRouterViewsToSet(child, views);
             }
         }
     }
 
-    private List<RouterTransaction> getVisibleTransactions(@NonNull Iterator<RouterTransaction> backstackIterator) {
-        List<RouterTransaction> transactions = new ArrayList<>();
-        while (backstackIterator.hasNext()) {
-            RouterTransaction transaction = backstackIterator.next();
-            transactions.add(transaction);
-
-            //noinspection ConstantConditions
-            if (transaction.pushChangeHandler() == null || transaction.pushChangeHandler().removesFromViewOnPush()) {
-                break;
+    static void collectInstanceIds(@NonNull Bundle savedInstanceState, @NonNull List<String> instanceIds) {
+        Bundle backstackBundle = savedInstanceState.getParcelable(KEY_BACKSTACK);
+        if (backstackBundle != null) {
+            Backstack.collectInstanceIds(backstackBundle, instanceIds);
+        } else {
+            List<String> fileInstanceIds = savedInstanceState.getStringArrayList(KEY_BACKSTACK_FILE_INSTANCE_IDS);
+            if (fileInstanceIds != null) {
+                instanceIds.addAll(fileInstanceIds);
             }
         }
+    }
+
+    void setControllerRouter(@NonNull Controller controller) {
+        controller.setRouter(this);
+    }
 
-        Collections.reverse(transactions);
-        return transactions;
+    void onTransactionRehydrated(@NonNull RouterTransaction transaction) {
+        setControllerRouter(transaction.controller);
+
+        if (controllerIndex != null) {
+            controllerIndex.add(transaction);
+        }
     }
 
-    private boolean backstacksAreEqual(List<RouterTransaction> lhs, List<RouterTransaction> rhs) {
-        if (lhs.size() != rhs.size()) {
-            return false;
+    private void updateHibernation() {
+        if (pendingControllerChanges.size() > 0 || hasScheduledChanges()) {
+            // Pending changes still reference their controller instances and views, so those must not be released yet
+            return;
         }
 
-        for (int i = 0; i < rhs.size(); i++) {
-            if (rhs.get(i).controller() != lhs.get(i).controller()) {
-                return false;
+        releaseViewsOutsideRetentionWindow();
+
+        if (hibernationDepth == 0) {
+            return;
+        }
+
+        int depth = 0;
+        for (RouterTransaction transaction : backstack) {
+            if (depth < hibernationDepth) {
+                transaction.controller();
+            } else if (!transaction.isHibernated() && transaction.controller.canHibernate()) {
+                hibernate(transaction);
             }
+            depth++;
         }
+    }
 
-        return true;
+    private void hibernate(@NonNull RouterTransaction transaction) {
+        // Hibernated transactions are indexed by their saved instance IDs instead of their controller
+        removeFromIndex(transaction);
+        transaction.hibernate(this);
+        if (controllerIndex != null) {
+            controllerIndex.add(transaction);
+        }
     }
 
-    void setControllerRouter(@NonNull Controller controller) {
-        controller.setRouter(this);
+    private void releaseViewsOutsideRetentionWindow() {
+        if (viewRetentionDepth == 0) {
+            return;
+        }
+
+        int depth = 0;
+        for (RouterTransaction transaction : backstack) {
+            if (depth >= viewRetentionDepth && !transaction.isHibernated()) {
+                transaction.controller.releaseRetainedView();
+            }
+            depth++;
+        }
+    }
+
+    private boolean hasScheduledChanges() {
+        ChangeScheduler changeScheduler = getChangeScheduler();
+        return changeScheduler != null && changeScheduler.hasScheduledChanges(this);
     }
 
     abstract void invalidateOptionsMenu();
@@ -894,5 +1670,6 @@ public abstract class Router {
     @NonNull abstract List<Router> getSiblingRouters();
     @NonNull abstract Router getRootRouter();
     @Nullable abstract TransactionIndexer getTransactionIndexer();
+    @Nullable abstract ChangeScheduler getChangeScheduler();
 
 }
@@ -0,0 +1,210 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+
+import com.bluelinelabs.conductor.internal.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Records a series of backstack operations on a {@link Router} and applies them as a single change when
+ * {@link #commit()} is called. Only the {@link Controller}s that are visible once all operations have been
+ * folded together will be inflated, and only one {@link ControllerChangeHandler} will be run for the change
+ * at the top of the backstack. Obtained through {@link Router#beginTransaction()}. The Router's backstack must
+ * not be changed by other means between beginning and committing a batch.
+ */
+public final class RouterBatchTransaction {
+
+    private final Router router;
+    private final List<RouterTransaction> initialBackstack;
+    private final List<RouterTransaction> backstack;
+    private final List<RouterTransaction> discarded = new ArrayList<>();
+    private ControllerChangeHandler changeHandler;
+    private boolean committed;
+
+    RouterBatchTransaction(@NonNull Router router) {
+        this.router = router;
+        initialBackstack = router.getBackstack();
+        backstack = new ArrayList<>(initialBackstack);
+    }
+
+    /**
+     * Pushes a new {@link Controller} to the top of the pending backstack.
+     *
+     * @param transaction The transaction detailing what should be pushed
+     */
+    @NonNull
+    public RouterBatchTransaction push(@NonNull RouterTransaction transaction) {
+        ensureNotCommitted();
+
+        backstack.add(transaction);
+        return this;
+    }
+
+    /**
+     * Pops the top {@link Controller} from the pending backstack.
+     */
+    @NonNull
+    public RouterBatchTransaction pop() {
+        ensureNotCommitted();
+
+        if (backstack.isEmpty()) {
+            throw new IllegalStateException("Trying to pop the current controller when there are none on the backstack.");
+        }
+        discard(backstack.remove(backstack.size() - 1));
+        return this;
+    }
+
+    /**
+     * Removes the passed {@link Controller} from the pending backstack, wherever it is.
+     *
+     * @param controller The controller that should be removed
+     */
+    @NonNull
+    public RouterBatchTransaction remove(@NonNull Controller controller) {
+        ensureNotCommitted();
+
+        for (int i = backstack.size() - 1; i >= 0; i--) {
+            if (backstack.get(i).controller == controller) {
+                discard(backstack.remove(i));
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Replaces the top {@link Controller} of the pending backstack with a new one.
+     *
+     * @param transaction The transaction detailing what should be pushed
+     */
+    @NonNull
+    public RouterBatchTransaction replaceTop(@NonNull RouterTransaction transaction) {
+        ensureNotCommitted();
+
+        if (!backstack.isEmpty()) {
+            discard(backstack.remove(backstack.size() - 1));
+        }
+        backstack.add(transaction);
+        return this;
+    }
+
+    /**
+     * Pops all {@link Controller}s from the pending backstack until only the root is left.
+     */
+    @NonNull
+    public RouterBatchTransaction popToRoot() {
+        ensureNotCommitted();
+
+        while (backstack.size() > 1) {
+            discard(backstack.remove(backstack.size() - 1));
+        }
+        return this;
+    }
+
+    /**
+     * Pops all {@link Controller}s from the pending backstack until the one with the passed tag is at the top.
+     * Nothing will be popped if no Controller with this tag exists.
+     *
+     * @param tag The tag being popped to
+     */
+    @NonNull
+    public RouterBatchTransaction popToTag(@NonNull String tag) {
+        ensureNotCommitted();
+
+        for (int i = backstack.size() - 1; i >= 0; i--) {
+            if (tag.equals(backstack.get(i).tag())) {
+                while (backstack.size() > i + 1) {
+                    discard(backstack.remove(backstack.size() - 1));
+                }
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Sets the {@link ControllerChangeHandler} used for the change at the top of the backstack. If none is
+     * set, the push handler of the new top transaction is used when it was not previously on the backstack,
+     * otherwise the pop handler of the previous top transaction is used.
+     */
+    @NonNull
+    public RouterBatchTransaction changeHandler(@Nullable ControllerChangeHandler changeHandler) {
+        ensureNotCommitted();
+
+        this.changeHandler = changeHandler;
+        return this;
+    }
+
+    /**
+     * Applies all recorded operations to the Router as one backstack change.
+     *
+     * @throws IllegalStateException if the Router's backstack was changed since this batch was begun
+     */
+    @UiThread
+    public void commit() {
+        ThreadUtils.ensureMainThread();
+        ensureNotCommitted();
+
+        // The operations were applied to a snapshot, so committing them over a changed backstack would silently undo those changes
+        List<RouterTransaction> currentBackstack = router.getBackstack();
+        if (!isSameBackstack(initialBackstack, currentBackstack)) {
+            throw new IllegalStateException("The Router's backstack was changed after this " + getClass().getSimpleName() + " was begun.");
+        }
+        committed = true;
+
+        RouterTransaction currentTop = currentBackstack.isEmpty() ? null : currentBackstack.get(currentBackstack.size() - 1);
+
+        // Controllers that were both added and removed within this batch never reach the Router, so they're destroyed here
+        // just like they would have been by an individual pop. Transactions are compared rather than controllers, as
+        // hibernated transactions don't hold a controller.
+        Set<RouterTransaction> currentTransactions = BackstackDiff.<RouterTransaction>newIdentitySet(currentBackstack.size());
+        currentTransactions.addAll(currentBackstack);
+        Set<RouterTransaction> finalTransactions = BackstackDiff.<RouterTransaction>newIdentitySet(backstack.size());
+        finalTransactions.addAll(backstack);
+        for (RouterTransaction transaction : discarded) {
+            if (!transaction.isHibernated() && !currentTransactions.contains(transaction) && !finalTransactions.contains(transaction)) {
+                transaction.controller.destroy();
+            }
+        }
+
+        ControllerChangeHandler handler = changeHandler;
+        if (handler == null) {
+            RouterTransaction newTop = backstack.isEmpty() ? null : backstack.get(backstack.size() - 1);
+            if (newTop != null && !currentTransactions.contains(newTop)) {
+                handler = newTop.pushChangeHandler();
+            } else if (currentTop != null && currentTop != newTop) {
+                handler = currentTop.popChangeHandler();
+            }
+        }
+
+        router.setBackstack(backstack, handler);
+    }
+
+    private static boolean isSameBackstack(@NonNull List<RouterTransaction> first, @NonNull List<RouterTransaction> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            if (first.get(i) != second.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void discard(@NonNull RouterTransaction transaction) {
+        discarded.add(transaction);
+    }
+
+    private void ensureNotCommitted() {
+        if (committed) {
+            throw new IllegalStateException(getClass().getSimpleName() + "s can not be modified or committed after being committed.");
+        }
+    }
+
+}
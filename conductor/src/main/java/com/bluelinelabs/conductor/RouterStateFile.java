@@ -0,0 +1,232 @@
+package com.bluelinelabs.conductor;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Stores a {@link Router}'s saved backstack as a marshalled {@link Parcel} in an app-private file, so that only the
+ * path of that file needs to be kept in the Activity's saved state. Files are written on a shared background thread.
+ * <p>
+ * Files of Routers that are never restored (ex: after process death the user doesn't come back from, or for child
+ * Routers removed while saved) can't be told apart from those still needed, so none of them are ever deleted by
+ * anyone but their own Router. Once the directory holds too many of them, no new ones are created and Routers keep
+ * their state in the saved instance state instead.
+ */
+final class RouterStateFile {
+
+    private static final String DIRECTORY_NAME = "conductor-router-state";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int MAX_STATE_FILES = 64;
+
+    private static Executor executor;
+
+    // Only accessed on the background thread
+    private static boolean sweptTempFiles;
+
+    // Contents that have been handed to the background thread but may not have been written yet, by path
+    private static final Map<String, byte[]> pendingWrites = new HashMap<>();
+
+    @NonNull private final String path;
+
+    private RouterStateFile(@NonNull String path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns a new state file or {@code null} if the directory already holds too many of them.
+     */
+    @Nullable
+    static RouterStateFile create(@NonNull Context context) {
+        File directory = new File(context.getFilesDir(), DIRECTORY_NAME);
+        String[] names = directory.list();
+        if (names != null && names.length >= MAX_STATE_FILES) {
+            return null;
+        }
+        return new RouterStateFile(new File(directory, UUID.randomUUID().toString()).getAbsolutePath());
+    }
+
+    @NonNull
+    static RouterStateFile fromPath(@NonNull String path) {
+        return new RouterStateFile(path);
+    }
+
+    @NonNull
+    String getPath() {
+        return path;
+    }
+
+    /**
+     * Marshalls the passed Bundle on the calling thread, since it may be modified once this returns, and writes it to
+     * this file in the background, replacing any previous contents.
+     *
+     * @return Whether or not the Bundle will be written. Bundles holding live objects such as binders or file
+     *         descriptors can not be marshalled and will not be written.
+     */
+    boolean write(@NonNull Bundle bundle) {
+        final byte[] bytes;
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            bytes = parcel.marshall();
+        } catch (RuntimeException e) {
+            return false;
+        } finally {
+            parcel.recycle();
+        }
+
+        synchronized (pendingWrites) {
+            pendingWrites.put(path, bytes);
+        }
+
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writeToDisk(bytes);
+                } catch (IOException ignored) {
+                    // The state will be gone after process death, just as if it couldn't be read back
+                } finally {
+                    synchronized (pendingWrites) {
+                        if (pendingWrites.get(path) == bytes) {
+                            pendingWrites.remove(path);
+                        }
+                    }
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Reads the Bundle previously written to this file or returns {@code null} if it can not be read. Contents that
+     * are still being written by this process are read from memory.
+     */
+    @Nullable
+    Bundle read(@NonNull ClassLoader classLoader) {
+        byte[] bytes;
+        synchronized (pendingWrites) {
+            bytes = pendingWrites.get(path);
+        }
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            if (bytes == null) {
+                bytes = readFromDisk();
+                if (bytes == null) {
+                    return null;
+                }
+            }
+
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            return parcel.readBundle(classLoader);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    void delete() {
+        synchronized (pendingWrites) {
+            pendingWrites.remove(path);
+        }
+
+        // Runs after any write of this file that is still queued
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                //noinspection ResultOfMethodCallIgnored
+                new File(path).delete();
+            }
+        });
+    }
+
+    private void writeToDisk(@NonNull byte[] bytes) throws IOException {
+        File file = new File(path);
+        File directory = file.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        // Writes run one at a time, so temporary files can only be left behind by a previous process that died mid-write
+        if (!sweptTempFiles) {
+            sweptTempFiles = true;
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File staleFile : files) {
+                    if (staleFile.getName().endsWith(TEMP_FILE_SUFFIX)) {
+                        //noinspection ResultOfMethodCallIgnored
+                        staleFile.delete();
+                    }
+                }
+            }
+        }
+
+        // Write to a temporary file first so a process death mid-write never leaves a truncated state file behind
+        File tempFile = new File(path + TEMP_FILE_SUFFIX);
+        FileOutputStream outputStream = new FileOutputStream(tempFile);
+        try {
+            outputStream.write(bytes);
+        } finally {
+            outputStream.close();
+        }
+
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("Unable to move " + tempFile + " to " + file);
+        }
+    }
+
+    @Nullable
+    private byte[] readFromDisk() throws IOException {
+        File file = new File(path);
+        if (!file.exists()) {
+            return null;
+        }
+
+        byte[] bytes = new byte[(int)file.length()];
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = inputStream.read(bytes, offset, bytes.length - offset);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of " + path);
+                }
+                offset += read;
+            }
+        } finally {
+            inputStream.close();
+        }
+        return bytes;
+    }
+
+    private static synchronized void execute(@NonNull Runnable runnable) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Conductor router state");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        executor.execute(runnable);
+    }
+
+}
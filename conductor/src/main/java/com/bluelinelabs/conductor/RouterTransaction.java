@@ -6,6 +6,9 @@ import android.support.annotation.Nullable;
 
 import com.bluelinelabs.conductor.internal.TransactionIndexer;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Metadata used for adding {@link Controller}s to a {@link Router}.
  */
@@ -20,9 +23,15 @@ public class RouterTransaction {
     private static final String KEY_INDEX = "RouterTransaction.transactionIndex";
     private static final String KEY_ATTACHED_TO_ROUTER = "RouterTransaction.attachedToRouter";
 
-    @NonNull final Controller controller;
+    // Null while this transaction is hibernated, in which case hibernatedState holds everything needed to recreate it
+    Controller controller;
     private String tag;
 
+    private Bundle hibernatedState;
+    private String hibernatedInstanceId;
+    private List<String> hibernatedInstanceIds;
+    private Router hibernatingRouter;
+
     private ControllerChangeHandler pushControllerChangeHandler;
     private ControllerChangeHandler popControllerChangeHandler;
     private boolean attachedToRouter;
@@ -37,8 +46,13 @@ public class RouterTransaction {
         this.controller = controller;
     }
 
+    /**
+     * Restores a transaction in its hibernated state. The controller will only be created once it is needed.
+     */
     RouterTransaction(@NonNull Bundle bundle) {
-        controller = Controller.newInstance(bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE));
+        hibernatedState = bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE);
+        //noinspection ConstantConditions
+        hibernatedInstanceId = Controller.getInstanceId(hibernatedState);
         pushControllerChangeHandler = ControllerChangeHandler.fromBundle(bundle.getBundle(KEY_PUSH_TRANSITION));
         popControllerChangeHandler = ControllerChangeHandler.fromBundle(bundle.getBundle(KEY_POP_TRANSITION));
         tag = bundle.getString(KEY_TAG);
@@ -50,8 +64,15 @@ public class RouterTransaction {
         attachedToRouter = true;
     }
 
+    /**
+     * Returns this transaction's {@link Controller}. If it was hibernated by its {@link Router}, a new instance is
+     * created from its saved state, which replaces the one returned before. See {@link Router#setHibernationDepth(int)}.
+     */
     @NonNull
     public Controller controller() {
+        if (controller == null) {
+            rehydrate();
+        }
         return controller;
     }
 
@@ -70,9 +91,13 @@ public class RouterTransaction {
         }
     }
 
+    /**
+     * Returns the handler used when this transaction is pushed. Like {@link #controller()}, this recreates a
+     * hibernated Controller, as it may have overridden the handler.
+     */
     @Nullable
     public ControllerChangeHandler pushChangeHandler() {
-        ControllerChangeHandler handler = controller.getOverriddenPushHandler();
+        ControllerChangeHandler handler = controller().getOverriddenPushHandler();
         if (handler == null) {
             handler = pushControllerChangeHandler;
         }
@@ -89,9 +114,13 @@ public class RouterTransaction {
         }
     }
 
+    /**
+     * Returns the handler used when this transaction is popped. Like {@link #controller()}, this recreates a
+     * hibernated Controller, as it may have overridden the handler.
+     */
     @Nullable
     public ControllerChangeHandler popChangeHandler() {
-        ControllerChangeHandler handler = controller.getOverriddenPopHandler();
+        ControllerChangeHandler handler = controller().getOverriddenPopHandler();
         if (handler == null) {
             handler = popControllerChangeHandler;
         }
@@ -108,6 +137,97 @@ public class RouterTransaction {
         }
     }
 
+    boolean isHibernated() {
+        return controller == null;
+    }
+
+    /**
+     * Returns the instance ID of this transaction's controller without recreating it if it is hibernated.
+     */
+    @NonNull
+    String instanceId() {
+        return controller != null ? controller.getInstanceId() : hibernatedInstanceId;
+    }
+
+    /**
+     * Returns the instance IDs of this transaction's hibernated controller and all controllers in its child Routers.
+     */
+    @NonNull
+    List<String> hibernatedInstanceIds() {
+        if (hibernatedInstanceIds == null) {
+            hibernatedInstanceIds = new ArrayList<>();
+            Controller.collectInstanceIds(hibernatedState, hibernatedInstanceIds);
+        }
+        return hibernatedInstanceIds;
+    }
+
+    /**
+     * Returns whether the controller was attached when its state was saved and should be attached again once
+     * its Router is bound to a container.
+     */
+    boolean needsAttach() {
+        return controller != null ? controller.getNeedsAttach() : Controller.getNeedsAttach(hibernatedState);
+    }
+
+    /**
+     * Saves the controller's state as it would be saved for process death, then destroys and releases the instance.
+     * The controller will be recreated the next time it is accessed through {@link #controller()}.
+     */
+    void hibernate(@NonNull Router router) {
+        hibernatedInstanceId = controller.getInstanceId();
+        hibernatedState = controller.saveInstanceState();
+        hibernatingRouter = router;
+        controller.destroyKeepingState();
+        controller = null;
+    }
+
+    /**
+     * Sets the Router that will be notified once this hibernated transaction's controller is recreated.
+     */
+    void setHibernatingRouter(@NonNull Router router) {
+        hibernatingRouter = router;
+    }
+
+    /**
+     * Called when this transaction is removed from its backstack while hibernated. Its controller was already destroyed
+     * when it was hibernated, so only the activity result registrations that were kept for it and the controllers of
+     * its child Routers are released.
+     */
+    void onRemovedWhileHibernated() {
+        Router router = hibernatingRouter;
+        if (router != null) {
+            for (String instanceId : hibernatedInstanceIds()) {
+                router.unregisterForActivityResults(instanceId);
+            }
+        }
+    }
+
+    private void rehydrate() {
+        Controller rehydratedController = Controller.newInstance(hibernatedState);
+
+        Router router = hibernatingRouter;
+        if (router != null) {
+            router.removeFromIndex(this);
+        }
+
+        controller = rehydratedController;
+        hibernatedState = null;
+        hibernatedInstanceId = null;
+        hibernatedInstanceIds = null;
+        hibernatingRouter = null;
+
+        if (router != null) {
+            router.onTransactionRehydrated(this);
+        }
+    }
+
+    static void collectInstanceIds(@NonNull Bundle bundle, @NonNull List<String> instanceIds) {
+        Bundle controllerBundle = bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE);
+        if (controllerBundle != null) {
+            Controller.collectInstanceIds(controllerBundle, instanceIds);
+        }
+    }
+
     void ensureValidIndex(@Nullable TransactionIndexer indexer) {
         if (indexer == null) {
             throw new RuntimeException();
@@ -124,7 +244,7 @@ public class RouterTransaction {
     public Bundle saveInstanceState() {
         Bundle bundle = new Bundle();
 
-        bundle.putBundle(KEY_VIEW_CONTROLLER_BUNDLE, controller.saveInstanceState());
+        bundle.putBundle(KEY_VIEW_CONTROLLER_BUNDLE, controller != null ? controller.saveInstanceState() : hibernatedState);
 
         if (pushControllerChangeHandler != null) {
             bundle.putBundle(KEY_PUSH_TRANSITION, pushControllerChangeHandler.toBundle());
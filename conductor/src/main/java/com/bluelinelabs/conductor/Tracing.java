@@ -0,0 +1,65 @@
+package com.bluelinelabs.conductor;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+import android.support.annotation.NonNull;
+
+/**
+ * Optional {@link Trace} sections around Conductor's entry points, so they show up by name in systrace and Perfetto.
+ * While tracing is disabled, beginning a section costs a single boolean check.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+final class Tracing {
+
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    private static boolean enabled;
+
+    private Tracing() { }
+
+    static void setEnabled(boolean enabled) {
+        Tracing.enabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    /**
+     * Begins a section named after the passed operation if tracing is enabled.
+     *
+     * @return Whether or not a section was begun, which must be passed to {@link #end(boolean)}
+     */
+    static boolean begin(@NonNull String operation) {
+        if (!enabled) {
+            return false;
+        }
+
+        Trace.beginSection(sectionName("Conductor " + operation));
+        return true;
+    }
+
+    /**
+     * Begins a section named after the passed operation and the Controller or ControllerChangeHandler class it is
+     * being performed by if tracing is enabled.
+     *
+     * @return Whether or not a section was begun, which must be passed to {@link #end(boolean)}
+     */
+    static boolean begin(@NonNull String operation, @NonNull Class<?> cls) {
+        if (!enabled) {
+            return false;
+        }
+
+        Trace.beginSection(sectionName("Conductor " + operation + " " + cls.getName()));
+        return true;
+    }
+
+    static void end(boolean begun) {
+        if (begun) {
+            Trace.endSection();
+        }
+    }
+
+    @NonNull
+    private static String sectionName(@NonNull String name) {
+        return name.length() <= MAX_SECTION_NAME_LENGTH ? name : name.substring(0, MAX_SECTION_NAME_LENGTH);
+    }
+
+}
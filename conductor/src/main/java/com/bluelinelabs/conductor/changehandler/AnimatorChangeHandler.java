@@ -90,6 +90,20 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
         }
     }
 
+    @Override
+    protected void resetFrom(@NonNull ControllerChangeHandler handler) {
+        super.resetFrom(handler);
+
+        AnimatorChangeHandler animatorChangeHandler = (AnimatorChangeHandler)handler;
+        animationDuration = animatorChangeHandler.animationDuration;
+        removesFromViewOnPush = animatorChangeHandler.removesFromViewOnPush;
+        canceled = false;
+        needsImmediateCompletion = false;
+        completed = false;
+        animator = null;
+        onAnimationReadyOrAbortedListener = null;
+    }
+
     public long getAnimationDuration() {
         return animationDuration;
     }
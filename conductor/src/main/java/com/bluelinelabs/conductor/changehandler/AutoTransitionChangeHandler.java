@@ -27,4 +27,9 @@ public class AutoTransitionChangeHandler extends TransitionChangeHandler {
         return new AutoTransitionChangeHandler();
     }
 
+    @Override
+    public boolean isRecyclable() {
+        return getClass() == AutoTransitionChangeHandler.class;
+    }
+
 }
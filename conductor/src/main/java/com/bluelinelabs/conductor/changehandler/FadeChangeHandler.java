@@ -54,4 +54,9 @@ public class FadeChangeHandler extends AnimatorChangeHandler {
         return new FadeChangeHandler(getAnimationDuration(), removesFromViewOnPush());
     }
 
+    @Override
+    public boolean isRecyclable() {
+        return getClass() == FadeChangeHandler.class;
+    }
+
 }
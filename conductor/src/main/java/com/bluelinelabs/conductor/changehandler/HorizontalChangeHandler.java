@@ -64,4 +64,9 @@ public class HorizontalChangeHandler extends AnimatorChangeHandler {
         return new HorizontalChangeHandler(getAnimationDuration(), removesFromViewOnPush());
     }
 
+    @Override
+    public boolean isRecyclable() {
+        return getClass() == HorizontalChangeHandler.class;
+    }
+
 }
@@ -51,6 +51,14 @@ public abstract class TransitionChangeHandler extends ControllerChangeHandler {
         needsImmediateCompletion = true;
     }
 
+    @Override
+    protected void resetFrom(@NonNull ControllerChangeHandler handler) {
+        super.resetFrom(handler);
+
+        canceled = false;
+        needsImmediateCompletion = false;
+    }
+
     @Override
     public void performChange(@NonNull final ViewGroup container, @Nullable final View from, @Nullable final View to, final boolean isPush, @NonNull final ControllerChangeCompletedListener changeListener) {
         if (canceled) {
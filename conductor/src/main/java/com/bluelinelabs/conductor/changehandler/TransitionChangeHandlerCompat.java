@@ -9,7 +9,7 @@ import android.view.ViewGroup;
 
 import com.bluelinelabs.conductor.Controller;
 import com.bluelinelabs.conductor.ControllerChangeHandler;
-import com.bluelinelabs.conductor.internal.ClassUtils;
+import com.bluelinelabs.conductor.internal.FactoryRegistry;
 
 /**
  * A base {@link ControllerChangeHandler} that facilitates using {@link android.transition.Transition}s to replace Controller Views.
@@ -60,7 +60,7 @@ public class TransitionChangeHandlerCompat extends ControllerChangeHandler {
         super.restoreFromBundle(bundle);
 
         String className = bundle.getString(KEY_CHANGE_HANDLER_CLASS);
-        changeHandler = ClassUtils.newInstance(className);
+        changeHandler = FactoryRegistry.createChangeHandler(className);
         //noinspection ConstantConditions
         changeHandler.restoreFromBundle(bundle.getBundle(KEY_HANDLER_STATE));
     }
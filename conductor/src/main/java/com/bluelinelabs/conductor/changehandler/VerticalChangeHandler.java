@@ -56,4 +56,9 @@ public class VerticalChangeHandler extends AnimatorChangeHandler {
         return new VerticalChangeHandler(getAnimationDuration(), removesFromViewOnPush());
     }
 
+    @Override
+    public boolean isRecyclable() {
+        return getClass() == VerticalChangeHandler.class;
+    }
+
 }
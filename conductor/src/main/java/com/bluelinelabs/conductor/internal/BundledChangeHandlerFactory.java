@@ -0,0 +1,44 @@
+package com.bluelinelabs.conductor.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.bluelinelabs.conductor.ChangeHandlerFactory;
+import com.bluelinelabs.conductor.ControllerChangeHandler;
+import com.bluelinelabs.conductor.changehandler.AutoTransitionChangeHandler;
+import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
+import com.bluelinelabs.conductor.changehandler.HorizontalChangeHandler;
+import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
+import com.bluelinelabs.conductor.changehandler.TransitionChangeHandlerCompat;
+import com.bluelinelabs.conductor.changehandler.VerticalChangeHandler;
+
+/**
+ * Creates the ControllerChangeHandlers that ship with Conductor without reflection. Apps never see these handlers in
+ * their own compiled sources, so conductor-compiler can't generate a factory for them.
+ */
+final class BundledChangeHandlerFactory implements ChangeHandlerFactory {
+
+    static final BundledChangeHandlerFactory INSTANCE = new BundledChangeHandlerFactory();
+
+    private BundledChangeHandlerFactory() { }
+
+    @Nullable @Override
+    public ControllerChangeHandler createChangeHandler(@NonNull String className) {
+        // Class names are compared through the classes themselves so that they still match once obfuscated
+        if (className.equals(HorizontalChangeHandler.class.getName())) {
+            return new HorizontalChangeHandler();
+        } else if (className.equals(FadeChangeHandler.class.getName())) {
+            return new FadeChangeHandler();
+        } else if (className.equals(VerticalChangeHandler.class.getName())) {
+            return new VerticalChangeHandler();
+        } else if (className.equals(SimpleSwapChangeHandler.class.getName())) {
+            return new SimpleSwapChangeHandler();
+        } else if (className.equals(AutoTransitionChangeHandler.class.getName())) {
+            return new AutoTransitionChangeHandler();
+        } else if (className.equals(TransitionChangeHandlerCompat.class.getName())) {
+            return new TransitionChangeHandlerCompat();
+        }
+        return null;
+    }
+
+}
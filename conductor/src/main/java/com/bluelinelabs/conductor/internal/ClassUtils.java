@@ -4,29 +4,97 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class ClassUtils {
 
+    // Class lookups and constructor scans are repeated for every restored Controller and every ChangeHandler copy,
+    // so their results are cached per class for the lifetime of the process.
+    private static final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Constructors> constructors = new ConcurrentHashMap<>();
+
     @Nullable @SuppressWarnings("unchecked")
     public static <T> Class<? extends T> classForName(@NonNull String className, boolean allowEmptyName) {
         if (allowEmptyName && TextUtils.isEmpty(className)) {
             return null;
         }
 
-        try {
-            return (Class<? extends T>)Class.forName(className);
-        } catch (Exception e) {
-            throw new RuntimeException("An exception occurred while finding class for name " + className + ". " + e.getMessage());
+        Class<?> cls = classes.get(className);
+        if (cls == null) {
+            try {
+                cls = Class.forName(className);
+            } catch (Exception e) {
+                throw new RuntimeException("An exception occurred while finding class for name " + className + ". " + e.getMessage());
+            }
+            classes.put(className, cls);
         }
+        return (Class<? extends T>)cls;
     }
 
     @Nullable @SuppressWarnings("unchecked")
     public static <T> T newInstance(@NonNull String className) {
         try {
             Class<? extends T> cls = classForName(className, true);
-            return cls != null ? cls.newInstance() : null;
+            if (cls == null) {
+                return null;
+            }
+
+            Constructor<? extends T> constructor = getDefaultConstructor(cls);
+            if (constructor == null) {
+                throw new NoSuchMethodException(className + " does not have a public default constructor.");
+            }
+            return constructor.newInstance();
         } catch (Exception e) {
             throw new RuntimeException("An exception occurred while creating a new instance of " + className + ". " + e.getMessage());
         }
     }
 
+    /**
+     * Returns the public constructor of the passed class that takes no arguments or {@code null} if there is none.
+     */
+    @Nullable @SuppressWarnings("unchecked")
+    public static <T> Constructor<T> getDefaultConstructor(@NonNull Class<T> cls) {
+        return (Constructor<T>)constructorsFor(cls).defaultConstructor;
+    }
+
+    /**
+     * Returns the public constructor of the passed class that takes a single argument of exactly the passed type or
+     * {@code null} if there is none.
+     */
+    @Nullable @SuppressWarnings("unchecked")
+    public static <T> Constructor<T> getSingleArgumentConstructor(@NonNull Class<T> cls, @NonNull Class<?> parameterType) {
+        return (Constructor<T>)constructorsFor(cls).singleArgumentConstructors.get(parameterType);
+    }
+
+    @NonNull
+    private static Constructors constructorsFor(@NonNull Class<?> cls) {
+        Constructors classConstructors = constructors.get(cls);
+        if (classConstructors == null) {
+            classConstructors = new Constructors(cls);
+            constructors.put(cls, classConstructors);
+        }
+        return classConstructors;
+    }
+
+    private static class Constructors {
+        final Constructor<?> defaultConstructor;
+        final Map<Class<?>, Constructor<?>> singleArgumentConstructors = new HashMap<>();
+
+        Constructors(@NonNull Class<?> cls) {
+            Constructor<?> defaultConstructor = null;
+            for (Constructor<?> constructor : cls.getConstructors()) {
+                Class<?>[] parameterTypes = constructor.getParameterTypes();
+                if (parameterTypes.length == 0) {
+                    defaultConstructor = constructor;
+                } else if (parameterTypes.length == 1) {
+                    singleArgumentConstructors.put(parameterTypes[0], constructor);
+                }
+            }
+            this.defaultConstructor = defaultConstructor;
+        }
+    }
+
 }
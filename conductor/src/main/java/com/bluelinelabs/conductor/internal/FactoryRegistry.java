@@ -0,0 +1,73 @@
+package com.bluelinelabs.conductor.internal;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.bluelinelabs.conductor.ChangeHandlerFactory;
+import com.bluelinelabs.conductor.Controller;
+import com.bluelinelabs.conductor.ControllerChangeHandler;
+import com.bluelinelabs.conductor.ControllerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds the registered {@link ControllerFactory}s and {@link ChangeHandlerFactory}s, which are consulted before
+ * falling back to reflection whenever a Controller or ControllerChangeHandler is recreated from its class name.
+ */
+public class FactoryRegistry {
+
+    private static final List<ControllerFactory> controllerFactories = new CopyOnWriteArrayList<>();
+    private static final List<ChangeHandlerFactory> changeHandlerFactories = new CopyOnWriteArrayList<>();
+
+    public static void addControllerFactory(@NonNull ControllerFactory factory) {
+        if (!controllerFactories.contains(factory)) {
+            controllerFactories.add(factory);
+        }
+    }
+
+    public static void addChangeHandlerFactory(@NonNull ChangeHandlerFactory factory) {
+        if (!changeHandlerFactories.contains(factory)) {
+            changeHandlerFactories.add(factory);
+        }
+    }
+
+    @Nullable
+    public static Controller createController(@NonNull String className, @Nullable Bundle args) {
+        for (ControllerFactory factory : controllerFactories) {
+            Controller controller = factory.createController(className, args);
+            if (controller != null) {
+                return controller;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a new instance of the ControllerChangeHandler with the passed class name, using reflection if neither
+     * the registered factories nor the one for Conductor's own change handlers can create it.
+     */
+    @Nullable
+    public static <T extends ControllerChangeHandler> T createChangeHandler(@Nullable String className) {
+        if (className == null) {
+            return null;
+        }
+
+        for (ChangeHandlerFactory factory : changeHandlerFactories) {
+            ControllerChangeHandler changeHandler = factory.createChangeHandler(className);
+            if (changeHandler != null) {
+                //noinspection unchecked
+                return (T)changeHandler;
+            }
+        }
+
+        ControllerChangeHandler changeHandler = BundledChangeHandlerFactory.INSTANCE.createChangeHandler(className);
+        if (changeHandler != null) {
+            //noinspection unchecked
+            return (T)changeHandler;
+        }
+        return ClassUtils.newInstance(className);
+    }
+
+}
@@ -162,6 +162,18 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // Delivered by the Activity through its FragmentManager, so there is no need to register separately
+        if (activity != null && !destroyed) {
+            for (Router router : routerMap.values()) {
+                router.onTrimMemory(level);
+            }
+        }
+    }
+
     @SuppressWarnings("deprecation")
     @Override
     public void onAttach(Activity activity) {
@@ -2,11 +2,14 @@ package com.bluelinelabs.conductor;
 
 import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
 import com.bluelinelabs.conductor.changehandler.HorizontalChangeHandler;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
 import com.bluelinelabs.conductor.util.TestController;
 
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 public class ControllerChangeHandlerTests {
 
@@ -36,4 +39,53 @@ public class ControllerChangeHandlerTests {
         assertEquals(fadeChangeHandler.removesFromViewOnPush(), restoredFadeCast.removesFromViewOnPush());
     }
 
+    @Test
+    public void testRestoredHandlersAreShared() {
+        RouterTransaction transaction1 = RouterTransaction.with(new TestController())
+                .pushChangeHandler(new HorizontalChangeHandler(150, false));
+        RouterTransaction transaction2 = RouterTransaction.with(new TestController())
+                .pushChangeHandler(new HorizontalChangeHandler(150, false))
+                .popChangeHandler(new HorizontalChangeHandler(300, false));
+
+        RouterTransaction restoredTransaction1 = new RouterTransaction(transaction1.saveInstanceState());
+        RouterTransaction restoredTransaction2 = new RouterTransaction(transaction2.saveInstanceState());
+
+        assertSame(restoredTransaction1.pushChangeHandler(), restoredTransaction2.pushChangeHandler());
+        assertNotSame(restoredTransaction2.pushChangeHandler(), restoredTransaction2.popChangeHandler());
+
+        HorizontalChangeHandler copy = (HorizontalChangeHandler)restoredTransaction1.pushChangeHandler().copy();
+        assertNotSame(restoredTransaction1.pushChangeHandler(), copy);
+        assertEquals(150, copy.getAnimationDuration());
+        assertEquals(false, copy.removesFromViewOnPush());
+    }
+
+    @Test
+    public void testRestoredMutableHandlersAreNotShared() {
+        RouterTransaction transaction1 = RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler());
+        RouterTransaction transaction2 = RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler());
+
+        RouterTransaction restoredTransaction1 = new RouterTransaction(transaction1.saveInstanceState());
+        RouterTransaction restoredTransaction2 = new RouterTransaction(transaction2.saveInstanceState());
+
+        assertNotSame(restoredTransaction1.pushChangeHandler(), restoredTransaction2.pushChangeHandler());
+    }
+
+    @Test
+    public void testCopiesAreRecycled() {
+        HorizontalChangeHandler handler = new HorizontalChangeHandler(200, false);
+
+        ControllerChangeHandler copy = ChangeHandlerPool.copyOf(handler);
+        ChangeHandlerPool.recycle(copy);
+
+        HorizontalChangeHandler recycled = (HorizontalChangeHandler)ChangeHandlerPool.copyOf(handler);
+        assertSame(copy, recycled);
+        assertEquals(200, recycled.getAnimationDuration());
+        assertEquals(false, recycled.removesFromViewOnPush());
+
+        FadeChangeHandler fadeChangeHandler = new FadeChangeHandler();
+        assertNotSame(copy, ChangeHandlerPool.copyOf(fadeChangeHandler));
+    }
+
 }
@@ -491,6 +491,49 @@ public class ControllerLifecycleCallbacksTests {
         assertCalls(expectedCallState, child);
     }
 
+    @Test
+    public void testSubscribedEvents() {
+        TestController controller = new TestController();
+        final CallState callState = new CallState();
+
+        controller.addLifecycleListener(new LifecycleListener() {
+            @Override
+            public int getSubscribedEvents() {
+                return EVENT_POST_ATTACH | EVENT_POST_DESTROY;
+            }
+
+            @Override
+            public void preCreateView(@NonNull Controller controller) {
+                callState.createViewCalls++;
+            }
+
+            @Override
+            public void postAttach(@NonNull Controller controller, @NonNull View view) {
+                callState.attachCalls++;
+            }
+
+            @Override
+            public void preDetach(@NonNull Controller controller, @NonNull View view) {
+                callState.detachCalls++;
+            }
+
+            @Override
+            public void postDestroy(@NonNull Controller controller) {
+                callState.destroyCalls++;
+            }
+        });
+
+        router.pushController(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        router.popCurrentController();
+
+        assertEquals(0, callState.createViewCalls);
+        assertEquals(1, callState.attachCalls);
+        assertEquals(0, callState.detachCalls);
+        assertEquals(1, callState.destroyCalls);
+    }
+
     private MockChangeHandler getPushHandler(final CallState expectedCallState, final TestController controller) {
         return MockChangeHandler.listeningChangeHandler(new ChangeHandlerListener() {
             @Override
@@ -3,10 +3,15 @@ package com.bluelinelabs.conductor;
 import android.app.Activity;
 import android.content.Intent;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.CheckBox;
 
 import com.bluelinelabs.conductor.Controller.RetainViewMode;
+import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
+import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
 import com.bluelinelabs.conductor.util.ActivityProxy;
 import com.bluelinelabs.conductor.util.CallState;
 import com.bluelinelabs.conductor.util.TestController;
@@ -17,8 +22,14 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -72,6 +83,45 @@ public class ControllerTests {
         assertNull(controller.getView());
     }
 
+    @Test
+    public void testViewRecycling() {
+        Controller first = newRecyclingController();
+        View view = first.inflate(router.container);
+        ((CheckBox)view.findViewById(RecyclingTestController.CHECK_BOX_ID)).setChecked(true);
+        ViewUtils.reportAttached(view, true);
+        ViewUtils.reportAttached(view, false);
+        assertNull(first.getView());
+
+        // A new Controller of the same class rebinds the released view instead of creating one, without the view state
+        // of the first Controller
+        Controller second = newRecyclingController();
+        assertTrue(view == second.inflate(router.container));
+        assertEquals(0, ((TestController)second).currentCallState.createViewCalls);
+        assertEquals(1, ((RecyclingTestController)second).rebindViewCalls);
+        assertEquals(0, ((TestController)second).currentCallState.restoreViewStateCalls);
+        assertFalse(((RecyclingTestController)second).checkedOnRebind);
+
+        // Its own saved view state is still restored when it is shown again
+        ViewUtils.reportAttached(view, true);
+        ViewUtils.reportAttached(view, false);
+        assertTrue(view == second.inflate(router.container));
+        assertEquals(2, ((RecyclingTestController)second).rebindViewCalls);
+        assertEquals(1, ((TestController)second).currentCallState.restoreViewStateCalls);
+
+        // Views in use are never handed out twice
+        Controller third = newRecyclingController();
+        assertFalse(view == third.inflate(router.container));
+        assertEquals(1, ((TestController)third).currentCallState.createViewCalls);
+        assertEquals(0, ((RecyclingTestController)third).rebindViewCalls);
+    }
+
+    private Controller newRecyclingController() {
+        Controller controller = new RecyclingTestController();
+        controller.setRouter(router);
+        controller.setRetainViewMode(RetainViewMode.RECYCLE);
+        return controller;
+    }
+
     @Test
     public void testActivityResult() {
         TestController controller = new TestController();
@@ -405,8 +455,113 @@ public class ControllerTests {
         assertEquals(0, childRouter.getBackstackSize());
     }
 
+    @Test
+    public void testInstanceIds() {
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        assertFalse(controller1.getInstanceId().equals(controller2.getInstanceId()));
+
+        Controller restoredController = Controller.newInstance(controller1.saveInstanceState());
+        assertEquals(controller1.getInstanceId(), restoredController.getInstanceId());
+    }
+
+    @Test
+    public void testPostAfterChange() {
+        final List<String> completedWork = new ArrayList<>();
+        Controller controller = new TestController();
+
+        ShadowLooper.pauseMainLooper();
+        try {
+            // The pushed view is never measured, so the fade waits to be started until it's completed below
+            router.pushController(RouterTransaction.with(controller)
+                    .pushChangeHandler(new FadeChangeHandler()));
+
+            controller.postAfterChange(new RecordingRunnable(completedWork, "low"));
+            controller.postAfterChange(new RecordingRunnable(completedWork, "high"), 1);
+            router.postAfterChange(new RecordingRunnable(completedWork, "router"));
+
+            runFrames(3);
+            assertTrue(completedWork.isEmpty());
+
+            ControllerChangeHandler.completeHandlerImmediately(controller);
+            runFrames(3);
+        } finally {
+            ShadowLooper.unPauseMainLooper();
+        }
+
+        assertEquals(Arrays.asList("high", "low", "router"), completedWork);
+    }
+
+    @Test
+    public void testPostAfterChangeIsCancelledOnDetach() {
+        final List<String> completedWork = new ArrayList<>();
+        Controller controller = new TestController();
+
+        ShadowLooper.pauseMainLooper();
+        try {
+            router.pushController(RouterTransaction.with(controller)
+                    .pushChangeHandler(new SimpleSwapChangeHandler())
+                    .popChangeHandler(new SimpleSwapChangeHandler()));
+            assertTrue(controller.isAttached());
+
+            controller.postAfterChange(new RecordingRunnable(completedWork, "controller"));
+            router.popController(controller);
+            runFrames(3);
+        } finally {
+            ShadowLooper.unPauseMainLooper();
+        }
+
+        assertTrue(completedWork.isEmpty());
+    }
+
+    private static void runFrames(int frames) {
+        // Work posted to run after changes is run one item per frame
+        for (int i = 0; i < frames; i++) {
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        }
+    }
+
+    private static class RecordingRunnable implements Runnable {
+        private final List<String> completedWork;
+        private final String name;
+
+        RecordingRunnable(List<String> completedWork, String name) {
+            this.completedWork = completedWork;
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            completedWork.add(name);
+        }
+    }
+
     private void assertCalls(CallState callState, TestController controller) {
         assertEquals("Expected call counts and controller call counts do not match.", callState, controller.currentCallState);
     }
 
+    public static class RecyclingTestController extends TestController {
+        static final int CHECK_BOX_ID = 1001;
+
+        int rebindViewCalls;
+        boolean checkedOnRebind;
+
+        @NonNull
+        @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+            ViewGroup view = (ViewGroup)super.onCreateView(inflater, container);
+            CheckBox checkBox = new CheckBox(inflater.getContext());
+            checkBox.setId(CHECK_BOX_ID);
+            view.addView(checkBox);
+            return view;
+        }
+
+        @Override
+        protected boolean onRebindView(@NonNull View view) {
+            rebindViewCalls++;
+            checkedOnRebind = ((CheckBox)view.findViewById(CHECK_BOX_ID)).isChecked();
+            return true;
+        }
+    }
+
 }
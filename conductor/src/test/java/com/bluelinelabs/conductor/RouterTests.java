@@ -1,7 +1,16 @@
 package com.bluelinelabs.conductor;
 
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.LayoutInflater;
+import android.view.View;
 import android.view.ViewGroup;
 
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
 import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
 import com.bluelinelabs.conductor.changehandler.HorizontalChangeHandler;
 import com.bluelinelabs.conductor.util.ActivityProxy;
@@ -12,13 +21,20 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -74,6 +90,57 @@ public class RouterTests {
         assertNull(router.getControllerWithInstanceId("fake id"));
     }
 
+    @Test
+    public void testGetByInstanceIdInChildRouter() {
+        Controller parent = new TestController();
+        router.setRoot(RouterTransaction.with(parent));
+
+        Router childRouter = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1));
+
+        Controller child1 = new TestController();
+        Controller child2 = new TestController();
+        childRouter.setRoot(RouterTransaction.with(child1));
+        childRouter.pushController(RouterTransaction.with(child2));
+
+        assertEquals(parent, router.getControllerWithInstanceId(parent.getInstanceId()));
+        assertEquals(child1, router.getControllerWithInstanceId(child1.getInstanceId()));
+        assertEquals(child2, router.getControllerWithInstanceId(child2.getInstanceId()));
+
+        childRouter.popCurrentController();
+
+        assertEquals(child1, router.getControllerWithInstanceId(child1.getInstanceId()));
+        assertNull(router.getControllerWithInstanceId(child2.getInstanceId()));
+
+        parent.removeChildRouter(childRouter);
+
+        assertEquals(parent, router.getControllerWithInstanceId(parent.getInstanceId()));
+        assertNull(router.getControllerWithInstanceId(child1.getInstanceId()));
+    }
+
+    @Test
+    public void testGetByDuplicateTag() {
+        String tag = "tag";
+
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        Controller controller3 = new TestController();
+
+        router.pushController(RouterTransaction.with(controller1).tag(tag));
+        router.pushController(RouterTransaction.with(controller2));
+        router.pushController(RouterTransaction.with(controller3).tag(tag));
+
+        assertEquals(controller3, router.getControllerWithTag(tag));
+
+        router.popCurrentController();
+
+        assertEquals(controller1, router.getControllerWithTag(tag));
+
+        router.popToRoot();
+        router.popCurrentController();
+
+        assertNull(router.getControllerWithTag(tag));
+    }
+
     @Test
     public void testGetByTag() {
         String controller1Tag = "controller1";
@@ -384,6 +451,31 @@ public class RouterTests {
         assertEquals(0, router.getBackstackSize());
     }
 
+    @Test
+    public void testSetBackstackRetainsReorderedControllers() {
+        List<RouterTransaction> backstack = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            backstack.add(RouterTransaction.with(new TestController()));
+        }
+        router.setBackstack(backstack, null);
+
+        RouterTransaction removedTransaction = backstack.remove(10);
+        List<RouterTransaction> reversedBackstack = new ArrayList<>(backstack);
+        Collections.reverse(reversedBackstack);
+        router.setBackstack(reversedBackstack, null);
+
+        assertEquals(49, router.getBackstackSize());
+        assertTrue(removedTransaction.controller.isDestroyed());
+        for (RouterTransaction transaction : backstack) {
+            assertFalse(transaction.controller.isDestroyed());
+            assertEquals(router, transaction.controller.getRouter());
+        }
+
+        RouterTransaction topTransaction = reversedBackstack.get(reversedBackstack.size() - 1);
+        assertTrue(topTransaction.controller.isAttached());
+        assertEquals(1, ((ViewGroup)topTransaction.controller.getView().getParent()).getChildCount());
+    }
+
     @Test
     public void testChildRouterRearrangeTransactionBackstack() {
         Controller parent = new TestController();
@@ -415,6 +507,313 @@ public class RouterTests {
         assertEquals(0, childRouter.getBackstackSize());
     }
 
+    @Test
+    public void testBatchTransaction() {
+        TestController controller1 = new TestController();
+        TestController controller2 = new TestController();
+        TestController controller3 = new TestController();
+        TestController controller4 = new TestController();
+
+        router.setRoot(RouterTransaction.with(controller1));
+
+        router.beginTransaction()
+                .push(RouterTransaction.with(controller2))
+                .push(RouterTransaction.with(controller3))
+                .pop()
+                .push(RouterTransaction.with(controller4).pushChangeHandler(MockChangeHandler.defaultHandler()))
+                .commit();
+
+        assertEquals(3, router.getBackstackSize());
+        assertEquals(controller4, router.getBackstack().get(2).controller());
+        assertEquals(0, controller2.currentCallState.createViewCalls);
+        assertEquals(0, controller3.currentCallState.createViewCalls);
+        assertEquals(1, controller4.currentCallState.createViewCalls);
+        assertTrue(controller3.isDestroyed());
+        assertTrue(controller4.isAttached());
+        assertFalse(controller1.isAttached());
+    }
+
+    @Test
+    public void testBatchTransactionPopToRoot() {
+        TestController controller1 = new TestController();
+        TestController controller2 = new TestController();
+        TestController controller3 = new TestController();
+
+        router.setRoot(RouterTransaction.with(controller1));
+        router.pushController(RouterTransaction.with(controller2));
+
+        router.beginTransaction()
+                .popToRoot()
+                .replaceTop(RouterTransaction.with(controller3))
+                .commit();
+
+        assertEquals(1, router.getBackstackSize());
+        assertEquals(controller3, router.getBackstack().get(0).controller());
+        assertTrue(controller1.isDestroyed());
+        assertTrue(controller2.isDestroyed());
+        assertTrue(controller3.isAttached());
+    }
+
+    @Test
+    public void testBatchTransactionPopAll() {
+        router.setPopsLastView(true);
+
+        TestController controller1 = new TestController();
+        TestController controller2 = new TestController();
+
+        router.setRoot(RouterTransaction.with(controller1));
+        router.pushController(RouterTransaction.with(controller2).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        final List<Controller> poppedControllers = new ArrayList<>();
+        router.addChangeListener(new ControllerChangeListener() {
+            @Override
+            public void onChangeStarted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) {
+                poppedControllers.add(from);
+            }
+
+            @Override
+            public void onChangeCompleted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) { }
+        });
+
+        router.beginTransaction()
+                .pop()
+                .pop()
+                .changeHandler(MockChangeHandler.defaultHandler())
+                .commit();
+
+        assertEquals(0, router.getBackstackSize());
+        assertEquals(1, poppedControllers.size());
+        assertEquals(controller2, poppedControllers.get(0));
+        assertTrue(controller1.isDestroyed());
+        assertTrue(controller2.isDestroyed());
+    }
+
+    @Test
+    public void testBatchTransactionAfterRouterChanged() {
+        TestController controller1 = new TestController();
+        TestController controller2 = new TestController();
+
+        router.setRoot(RouterTransaction.with(controller1));
+
+        RouterBatchTransaction batch = router.beginTransaction()
+                .push(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(controller2).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        boolean threw = false;
+        try {
+            batch.commit();
+        } catch (IllegalStateException e) {
+            threw = true;
+        }
+
+        // Committing the batch must not silently drop the push made in the meantime
+        assertTrue(threw);
+        assertEquals(2, router.getBackstackSize());
+        assertEquals(controller2, router.getBackstack().get(1).controller());
+    }
+
+    @Test
+    public void testBatchTransactionRevealingHibernatedController() {
+        router.setHibernationDepth(1);
+
+        RouterTransaction root = RouterTransaction.with(new TestController());
+        router.setRoot(root);
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        MockChangeHandler popHandler = MockChangeHandler.defaultHandler();
+        router.pushController(RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(popHandler));
+        assertTrue(root.isHibernated());
+
+        final List<ControllerChangeHandler> usedHandlers = new ArrayList<>();
+        router.addChangeListener(new ControllerChangeListener() {
+            @Override
+            public void onChangeStarted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) {
+                usedHandlers.add(handler);
+            }
+
+            @Override
+            public void onChangeCompleted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) { }
+        });
+
+        router.beginTransaction()
+                .pop()
+                .pop()
+                .commit();
+
+        assertEquals(1, router.getBackstackSize());
+        assertTrue(root.controller().isAttached());
+        assertTrue(usedHandlers.contains(popHandler));
+    }
+
+    @Test
+    public void testHibernation() {
+        router.setHibernationDepth(2);
+
+        List<RouterTransaction> transactions = new ArrayList<>();
+        List<TestController> controllers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            TestController controller = new TestController();
+            RouterTransaction transaction = RouterTransaction.with(controller).tag("controller" + i);
+            transactions.add(transaction);
+            controllers.add(controller);
+            router.pushController(transaction);
+        }
+
+        // Released instances go through their regular destroy lifecycle
+        assertTrue(controllers.get(0).isDestroyed());
+        assertEquals(1, controllers.get(0).currentCallState.destroyCalls);
+        assertFalse(controllers.get(3).isDestroyed());
+
+        assertTrue(transactions.get(0).isHibernated());
+        assertTrue(transactions.get(1).isHibernated());
+        assertTrue(transactions.get(2).isHibernated());
+        assertFalse(transactions.get(3).isHibernated());
+        assertFalse(transactions.get(4).isHibernated());
+        assertTrue(transactions.get(4).controller().isAttached());
+
+        String instanceId = transactions.get(1).instanceId();
+        Controller rehydrated = router.getControllerWithInstanceId(instanceId);
+        assertEquals(instanceId, rehydrated.getInstanceId());
+        assertEquals(router, rehydrated.getRouter());
+        assertFalse(transactions.get(1).isHibernated());
+
+        router.popCurrentController();
+        router.popCurrentController();
+
+        assertEquals(3, router.getBackstackSize());
+        assertFalse(transactions.get(1).isHibernated());
+        assertFalse(transactions.get(2).isHibernated());
+        assertTrue(transactions.get(2).controller().isAttached());
+        assertEquals(transactions.get(0), router.getBackstack().get(0));
+        assertEquals("controller0", router.getBackstack().get(0).tag());
+    }
+
+    @Test
+    public void testSaveStateToDisk() {
+        router.setSavesStateToDisk(true);
+        router.pushController(RouterTransaction.with(new TestController()).tag("root"));
+        router.pushController(RouterTransaction.with(new TestController()).tag("top"));
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(savedState);
+
+        assertEquals(2, restoredRouter.getBackstackSize());
+        assertEquals("root", restoredRouter.getBackstack().get(0).tag());
+        assertEquals("top", restoredRouter.getBackstack().get(1).tag());
+        assertEquals(router.getControllerWithTag("top").getInstanceId(), restoredRouter.getControllerWithTag("top").getInstanceId());
+    }
+
+    @Test
+    public void testSaveStateToDiskKeepsExistingFiles() throws IOException {
+        File directory = new File(router.getActivity().getFilesDir(), "conductor-router-state");
+        assertTrue(directory.isDirectory() || directory.mkdirs());
+
+        List<File> existingFiles = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            File file = new File(directory, "existing" + i);
+            assertTrue(file.exists() || file.createNewFile());
+            existingFiles.add(file);
+        }
+
+        try {
+            router.setSavesStateToDisk(true);
+            router.pushController(RouterTransaction.with(new TestController()).tag("root"));
+
+            Bundle savedState = new Bundle();
+            router.saveInstanceState(savedState);
+
+            // Files that may still be restored by other Routers are never deleted, the state stays in the Bundle instead
+            for (File file : existingFiles) {
+                assertTrue(file.exists());
+            }
+            assertNull(savedState.getString("Router.backstackFile"));
+
+            Router restoredRouter = new ActivityHostedRouter();
+            restoredRouter.restoreInstanceState(savedState);
+            assertEquals("root", restoredRouter.getBackstack().get(0).tag());
+        } finally {
+            for (File file : existingFiles) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testRestoredBackstackIsEagerWithoutHibernation() {
+        router.pushController(RouterTransaction.with(new TestController()).tag("root"));
+        router.pushController(RouterTransaction.with(new TestController()).tag("top"));
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(savedState);
+
+        assertFalse(restoredRouter.backstack.root().isHibernated());
+        assertFalse(restoredRouter.backstack.peek().isHibernated());
+    }
+
+    @Test
+    public void testRestoredBackstackIsLazy() {
+        router.setHibernationDepth(1);
+
+        TestController parent = new TestController();
+        router.pushController(RouterTransaction.with(parent).tag("root"));
+
+        TestController child = new TestController();
+        parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1))
+                .setRoot(RouterTransaction.with(child));
+
+        router.pushController(RouterTransaction.with(new TestController()).tag("top"));
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(savedState);
+
+        // Only Controllers within the hibernation depth are created right away
+        RouterTransaction restoredRoot = restoredRouter.backstack.root();
+        assertTrue(restoredRoot.isHibernated());
+        assertFalse(restoredRouter.backstack.peek().isHibernated());
+
+        Controller restoredChild = restoredRouter.getControllerWithInstanceId(child.getInstanceId());
+        assertEquals(child.getInstanceId(), restoredChild.getInstanceId());
+        assertFalse(restoredRoot.isHibernated());
+    }
+
+    @Test
+    public void testControllersSavedToDiskByChildRouterAreIndexed() {
+        router.setHibernationDepth(1);
+
+        TestController parent = new TestController();
+        router.pushController(RouterTransaction.with(parent));
+
+        TestController child = new TestController();
+        parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1))
+                .setSavesStateToDisk(true)
+                .setRoot(RouterTransaction.with(child));
+
+        router.pushController(RouterTransaction.with(new TestController()));
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        Router restoredRouter = new ActivityHostedRouter();
+        restoredRouter.restoreInstanceState(savedState);
+        assertTrue(restoredRouter.backstack.root().isHibernated());
+
+        Controller restoredChild = restoredRouter.getControllerWithInstanceId(child.getInstanceId());
+        assertNotNull(restoredChild);
+        assertEquals(child.getInstanceId(), restoredChild.getInstanceId());
+    }
+
     @Test
     public void testRemovesAllViewsOnDestroy() {
         Controller controller1 = new TestController();
@@ -431,4 +830,426 @@ public class RouterTests {
         assertEquals(0, router.container.getChildCount());
     }
 
+    @Test
+    public void testNavigationMetrics() {
+        NavigationMetrics.reset();
+        NavigationMetrics.setEnabled(true);
+        try {
+            router.pushController(RouterTransaction.with(new TestController())
+                    .pushChangeHandler(MockChangeHandler.defaultHandler()));
+        } finally {
+            NavigationMetrics.setEnabled(false);
+        }
+
+        List<NavigationMetrics.Metric> metrics = new ArrayList<>();
+        for (NavigationMetrics.HistogramSnapshot snapshot : NavigationMetrics.snapshot()) {
+            assertEquals(TestController.class.getName(), snapshot.getControllerClassName());
+            assertEquals(MockChangeHandler.class.getName(), snapshot.getChangeHandlerClassName());
+            assertEquals(1, snapshot.getCount());
+            metrics.add(snapshot.getMetric());
+        }
+        assertEquals(4, metrics.size());
+        assertTrue(metrics.containsAll(Arrays.asList(NavigationMetrics.Metric.values())));
+
+        NavigationMetrics.reset();
+        assertTrue(NavigationMetrics.snapshot().isEmpty());
+    }
+
+    @Test
+    public void testFrameAlignedChangesAreCoalesced() {
+        TestController rootController = new TestController();
+        TestController poppedController = new TestController();
+        TestController replacedController = new TestController();
+        TestController topController = new TestController();
+
+        router.setRoot(RouterTransaction.with(rootController));
+        router.setFrameAlignedChanges(true);
+
+        ShadowLooper.pauseMainLooper();
+        try {
+            router.pushController(RouterTransaction.with(poppedController)
+                    .pushChangeHandler(MockChangeHandler.defaultHandler()));
+            router.popCurrentController();
+            router.pushController(RouterTransaction.with(replacedController)
+                    .pushChangeHandler(MockChangeHandler.defaultHandler()));
+            router.replaceTopController(RouterTransaction.with(topController)
+                    .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+            assertEquals(2, router.getBackstackSize());
+            assertTrue(rootController.isAttached());
+            assertFalse(topController.isAttached());
+
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        } finally {
+            ShadowLooper.unPauseMainLooper();
+        }
+
+        assertFalse(rootController.isAttached());
+        assertTrue(topController.isAttached());
+        assertEquals(0, poppedController.currentCallState.createViewCalls);
+        assertEquals(0, replacedController.currentCallState.createViewCalls);
+        assertTrue(poppedController.isDestroyed());
+        assertTrue(replacedController.isDestroyed());
+        assertEquals(1, router.container.getChildCount());
+    }
+
+    @Test
+    public void testFirstChangeIntoDetachedContainerIsNotDeferred() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null);
+        Router router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+
+        Controller rootController = new TestController();
+        Controller pushedController = new TestController();
+
+        ShadowLooper.pauseMainLooper();
+        try {
+            router.setRoot(RouterTransaction.with(rootController));
+            router.pushController(RouterTransaction.with(pushedController)
+                    .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+            assertEquals(1, router.container.getChildCount());
+            assertEquals(pushedController.getView(), router.container.getChildAt(0));
+        } finally {
+            ShadowLooper.unPauseMainLooper();
+        }
+    }
+
+    @Test
+    public void testPushControllerAsync() throws InterruptedException {
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        AsyncTestController controller = new AsyncTestController();
+        router.pushControllerAsync(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()), 10000);
+
+        // The backstack is only changed once the view has been created
+        assertEquals(1, router.getBackstackSize());
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (router.getBackstackSize() == 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        }
+
+        assertEquals(2, router.getBackstackSize());
+        assertTrue(controller.isAttached());
+        assertEquals(1, controller.currentCallState.createViewCalls);
+        assertFalse(Thread.currentThread() == controller.createViewThread);
+    }
+
+    @Test
+    public void testPushControllerAsyncBeforeContainerRemoval() throws InterruptedException {
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        AsyncTestController controller = new AsyncTestController();
+        router.pushControllerAsync(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()), 10000);
+        router.prepareForContainerRemoval();
+
+        // The push isn't lost, whether or not the background thread had gotten to the view yet
+        assertEquals(2, router.getBackstackSize());
+
+        Thread.sleep(100);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(2, router.getBackstackSize());
+        assertEquals(1, controller.currentCallState.createViewCalls);
+    }
+
+    @Test
+    public void testPushControllerAsyncTimeoutWhileCreating() throws InterruptedException {
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        SlowAsyncTestController controller = new SlowAsyncTestController();
+        router.pushControllerAsync(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()), 0);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (controller.createViewThread == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // The push happens once the timeout passes, taking the view the background thread is still creating
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(2, router.getBackstackSize());
+        assertTrue(controller.isAttached());
+        assertEquals(1, controller.currentCallState.createViewCalls);
+        assertFalse(Thread.currentThread() == controller.createViewThread);
+    }
+
+    @Test
+    public void testContainerRemovalResetsChangesInProgress() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        // A change whose handler never completes because its container is going away
+        router.onChangeInProgressStarted();
+        assertTrue(router.hasChangesInProgress());
+
+        router.prepareForContainerRemoval();
+        assertFalse(router.hasChangesInProgress());
+    }
+
+    @Test
+    public void testPreload() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        TestController controller = new TestController();
+        RouterTransaction transaction = RouterTransaction.with(controller).pushChangeHandler(MockChangeHandler.defaultHandler());
+        router.preload(transaction);
+
+        View preloadedView = controller.getView();
+        assertEquals(1, controller.currentCallState.createViewCalls);
+        assertFalse(controller.isAttached());
+        assertNull(preloadedView.getParent());
+
+        router.pushController(transaction);
+
+        assertEquals(1, controller.currentCallState.createViewCalls);
+        assertTrue(controller.isAttached());
+        assertTrue(preloadedView == controller.getView());
+    }
+
+    @Test
+    public void testPreloadLimit() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.setMaxPreloadedControllers(1);
+
+        TestController first = new TestController();
+        TestController second = new TestController();
+        router.preload(RouterTransaction.with(first));
+        router.preload(RouterTransaction.with(second));
+
+        assertTrue(first.isDestroyed());
+        assertFalse(second.isDestroyed());
+        assertEquals(1, second.currentCallState.createViewCalls);
+    }
+
+    @Test
+    public void testPreloadThenSetBackstackAndHibernate() {
+        router.setViewRetentionDepth(1);
+        router.setHibernationDepth(1);
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        TestController controller = new TestController();
+        RouterTransaction transaction = RouterTransaction.with(controller);
+        router.preload(transaction);
+
+        List<RouterTransaction> backstack = new ArrayList<>();
+        backstack.add(transaction);
+        backstack.add(RouterTransaction.with(new TestController()));
+        router.setBackstack(backstack, MockChangeHandler.defaultHandler());
+
+        assertTrue(transaction.isHibernated());
+
+        router.setMaxPreloadedControllers(0);
+        router.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+
+        assertFalse(controller.isDestroyed());
+        assertEquals(transaction, router.getBackstack().get(0));
+    }
+
+    @Test
+    public void testNavigationPredictor() {
+        ActivityManager activityManager = (ActivityManager)router.getActivity().getSystemService(Context.ACTIVITY_SERVICE);
+        Shadows.shadowOf(activityManager).setMemoryClass(256);
+
+        NavigationPredictor predictor = new NavigationPredictor();
+        router.addChangeListener(predictor);
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        for (int i = 0; i < 3; i++) {
+            router.pushController(RouterTransaction.with(new PrefetchTestController())
+                    .pushChangeHandler(MockChangeHandler.defaultHandler())
+                    .popChangeHandler(MockChangeHandler.defaultHandler()));
+            router.popCurrentController();
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        List<Controller> prefetchedControllers = predictor.getPrefetchedControllers();
+        assertEquals(1, prefetchedControllers.size());
+        Controller prefetched = prefetchedControllers.get(0);
+        assertTrue(prefetched instanceof PrefetchTestController);
+        assertEquals(1, ((PrefetchTestController)prefetched).currentCallState.createViewCalls);
+        assertFalse(prefetched.isAttached());
+
+        // A miss discards the prefetched Controller as soon as the next change starts
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        assertTrue(prefetched.isDestroyed());
+        assertTrue(predictor.getPrefetchedControllers().isEmpty());
+
+        // A hit takes over the prefetched Controller along with its view
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        prefetched = predictor.getPrefetchedControllers().get(0);
+        RouterTransaction transaction = predictor.obtainPrefetched(PrefetchTestController.class);
+        assertNotNull(transaction);
+        assertTrue(prefetched == transaction.controller());
+        assertNull(predictor.obtainPrefetched(PrefetchTestController.class));
+
+        router.pushController(transaction.pushChangeHandler(MockChangeHandler.defaultHandler()));
+        assertTrue(prefetched.isAttached());
+        assertEquals(1, ((PrefetchTestController)prefetched).currentCallState.createViewCalls);
+
+        NavigationPredictor restoredPredictor = new NavigationPredictor(predictor.toByteArray());
+        assertEquals(Collections.singletonList(PrefetchTestController.class.getName()), restoredPredictor.predict(TestController.class.getName(), 2));
+    }
+
+    @Test
+    public void testViewRetentionDepth() {
+        router.setViewRetentionDepth(2);
+
+        TestController root = new TestController();
+        TestController middle = new TestController();
+        TestController top = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(middle).pushChangeHandler(MockChangeHandler.defaultHandler()).popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertFalse(root.isAttached());
+        assertNotNull(root.getView());
+
+        router.pushController(RouterTransaction.with(top).pushChangeHandler(MockChangeHandler.defaultHandler()).popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertNotNull(middle.getView());
+        assertNull(root.getView());
+
+        router.popCurrentController();
+
+        assertTrue(middle.isAttached());
+        assertEquals(1, middle.currentCallState.createViewCalls);
+    }
+
+    @Test
+    public void testRetainedViewBudget() {
+        router.setViewRetentionDepth(3);
+        Conductor.setRetainedViewBudget(1, Long.MAX_VALUE);
+
+        try {
+            TestController root = new TestController();
+            TestController middle = new TestController();
+            router.setRoot(RouterTransaction.with(root));
+            router.pushController(RouterTransaction.with(middle).pushChangeHandler(MockChangeHandler.defaultHandler()));
+            router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+            // The view detached longest ago is released first
+            assertNull(root.getView());
+            assertNotNull(middle.getView());
+        } finally {
+            Conductor.setRetainedViewBudget(Integer.MAX_VALUE, Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void testRetainedViewBudgetRetriedAfterChange() {
+        router.setViewRetentionDepth(3);
+        Conductor.setRetainedViewBudget(0, Long.MAX_VALUE);
+
+        try {
+            TestController root = new TestController();
+            router.setRoot(RouterTransaction.with(root));
+            router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+            // The view is still being removed when it is detached and can only be released once the change completes
+            assertNull(root.getView());
+        } finally {
+            Conductor.setRetainedViewBudget(Integer.MAX_VALUE, Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void testTrimMemory() {
+        router.setHibernationDepth(1);
+
+        TestController root = new TestController();
+        TestController middle = new HibernationVetoingTestController();
+        root.setRetainViewMode(Controller.RetainViewMode.RETAIN_DETACH);
+        middle.setRetainViewMode(Controller.RetainViewMode.RETAIN_DETACH);
+
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(middle).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertNotNull(root.getView());
+        assertNotNull(middle.getView());
+
+        router.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        assertNull(root.getView());
+        assertNull(middle.getView());
+        assertEquals(0, root.currentCallState.destroyCalls);
+
+        router.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+
+        // Only the visible controller and the one vetoing hibernation are kept in memory
+        List<RouterTransaction> backstack = new ArrayList<>();
+        for (RouterTransaction transaction : router.backstack) {
+            backstack.add(transaction);
+        }
+        assertFalse(backstack.get(0).isHibernated());
+        assertFalse(backstack.get(1).isHibernated());
+        assertTrue(backstack.get(2).isHibernated());
+        assertEquals(1, root.currentCallState.destroyCalls);
+    }
+
+    @Test
+    public void testTrimMemoryInBackground() {
+        TestController root = new TestController();
+        root.setRetainViewMode(Controller.RetainViewMode.RETAIN_DETACH);
+
+        RouterTransaction rootTransaction = RouterTransaction.with(root);
+        router.setRoot(rootTransaction);
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        router.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertNotNull(root.getView());
+
+        // Background levels are at least as severe as the running ones
+        router.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertNull(root.getView());
+
+        // Routers only hibernate Controllers once they have been told to
+        assertFalse(rootTransaction.isHibernated());
+    }
+
+    public static class AsyncTestController extends TestController {
+        volatile Thread createViewThread;
+
+        @Override
+        protected boolean canCreateViewAsync() {
+            return true;
+        }
+
+        @NonNull
+        @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+            createViewThread = Thread.currentThread();
+            return super.onCreateView(inflater, container);
+        }
+    }
+
+    public static class SlowAsyncTestController extends AsyncTestController {
+        @NonNull
+        @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+            createViewThread = Thread.currentThread();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return super.onCreateView(inflater, container);
+        }
+    }
+
+    public static class PrefetchTestController extends TestController {
+        @Override
+        protected boolean canPrefetchView() {
+            return true;
+        }
+    }
+
+    public static class HibernationVetoingTestController extends TestController {
+        @Override
+        protected boolean shouldTrimMemory(@NonNull TrimMemoryAction action) {
+            return action != TrimMemoryAction.HIBERNATE;
+        }
+    }
+
 }
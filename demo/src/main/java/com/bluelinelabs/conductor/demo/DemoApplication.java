@@ -2,6 +2,8 @@ package com.bluelinelabs.conductor.demo;
 
 import android.app.Application;
 
+import com.bluelinelabs.conductor.Conductor;
+import com.bluelinelabs.conductor.generated.ConductorFactories;
 import com.squareup.leakcanary.LeakCanary;
 import com.squareup.leakcanary.RefWatcher;
 
@@ -13,6 +15,10 @@ public class DemoApplication extends Application {
     public void onCreate() {
         super.onCreate();
         refWatcher = LeakCanary.install(this);
+
+        ConductorFactories factories = new ConductorFactories();
+        Conductor.addControllerFactory(factories);
+        Conductor.addChangeHandlerFactory(factories);
     }
 
 }